@@ -0,0 +1,7 @@
+import ballerina/http;
+
+service / on new http:Listener(8080) {
+    resource function get menu() returns json {
+        return [{name: "Margherita", price: "10.99"}, {name: "Pepperoni", price: "12.99"}];
+    }
+}
@@ -0,0 +1,29 @@
+import ballerina/http;
+
+// The body the generator emitted for a resource without policies before the pass-through fast path. The context
+// record stands in for policy_validator:MediationContext, so that the project does not depend on the policy packages.
+type MediationContext record {|
+    string httpMethod;
+    string resourcePath;
+|};
+
+listener http:Listener ep0 = new (9090);
+
+final http:Client backendEP = check new("http://localhost:8080");
+
+service / on ep0 {
+    resource function get menu(http:Caller caller, http:Request incomingRequest) returns error? {
+        MediationContext mediationCtx = {httpMethod: "get", resourcePath: string `/menu`};
+        do {
+            http:Response backendResponse = check backendEP->execute(mediationCtx.httpMethod, mediationCtx.resourcePath, incomingRequest);
+            check caller->respond(backendResponse);
+        } on fail var e {
+            http:Response errFlowResponse = createDefaultErrorResponse(e);
+            check caller->respond(errFlowResponse);
+        }
+    }
+}
+
+function createDefaultErrorResponse(error e) returns http:Response {
+    return new;
+}
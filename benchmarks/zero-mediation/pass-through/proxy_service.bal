@@ -0,0 +1,13 @@
+import ballerina/http;
+
+listener http:Listener ep0 = new (9091);
+
+final http:Client backendEP = check new("http://localhost:8080");
+
+// The body the generator emits for a resource without policies.
+service / on ep0 {
+    resource function get menu(http:Caller caller, http:Request incomingRequest) returns error? {
+        http:Response backendResponse = check backendEP->execute("get", "/menu", incomingRequest);
+        check caller->respond(backendResponse);
+    }
+}
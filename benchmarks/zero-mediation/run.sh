@@ -0,0 +1,32 @@
+#!/usr/bin/env bash
+# Compares the latency of the full mediation body and the pass-through body of a resource without policies.
+# Needs the Ballerina distribution (bal) and wrk on the PATH.
+#
+#   $ ./run.sh [<duration>] [<connections>]
+
+set -euo pipefail
+
+DURATION=${1:-60s}
+CONNECTIONS=${2:-100}
+DIR=$(cd "$(dirname "$0")" && pwd)
+PIDS=()
+
+cleanup() {
+    kill "${PIDS[@]}" 2>/dev/null || true
+}
+trap cleanup EXIT
+
+for project in backend full-mediation pass-through; do
+    (cd "$DIR/$project" && bal build > /dev/null)
+    java -jar "$DIR/$project/target/bin/${project//-/_}.jar" > /dev/null 2>&1 &
+    PIDS+=($!)
+done
+
+sleep 5
+
+for target in "full-mediation http://localhost:9090/menu" "pass-through http://localhost:9091/menu"; do
+    set -- $target
+    echo "== $1"
+    wrk -t4 -c"$CONNECTIONS" -d10s "$2" > /dev/null    # warm-up
+    wrk -t4 -c"$CONNECTIONS" -d"$DURATION" --latency "$2"
+done
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim.benchmarks;
+
+import dev.choreo.apim.CodeGenerator;
+import dev.choreo.apim.PackageID;
+import dev.choreo.apim.PolicyManager;
+import dev.choreo.apim.PolicyPackage;
+import dev.choreo.apim.PolicyPackageLoader;
+import dev.choreo.apim.artifact.model.APIData;
+import dev.choreo.apim.artifact.model.Operation;
+import dev.choreo.apim.artifact.model.Policy;
+import io.ballerina.compiler.syntax.tree.FunctionDefinitionNode;
+import io.ballerina.compiler.syntax.tree.ModuleMemberDeclarationNode;
+import io.ballerina.compiler.syntax.tree.ModulePartNode;
+import io.ballerina.compiler.syntax.tree.Node;
+import io.ballerina.compiler.syntax.tree.ServiceDeclarationNode;
+import io.ballerina.compiler.syntax.tree.SyntaxKind;
+import io.ballerina.projects.Document;
+import io.ballerina.projects.Project;
+import io.ballerina.projects.directory.BuildProject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static dev.choreo.apim.utils.ProjectAPIUtils.getDocument;
+
+/**
+ * Synthetic inputs for the benchmarks. The services and policy packages are written to temporary Ballerina projects,
+ * so the benchmarks need the {@code ballerina.home} system property pointing to a Ballerina distribution.
+ */
+final class BenchmarkFixtures {
+
+    static final String POLICY_ORG;
+    static final String SERVICE_FILE = "proxy_service.bal";
+
+    static {
+        // Needs to be set before the Names class gets loaded, since that's where the builtin policy org is read.
+        if (System.getProperty("policy.org") == null) {
+            System.setProperty("policy.org", "choreo");
+        }
+        POLICY_ORG = System.getProperty("policy.org");
+    }
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Creates a service with the given number of resources, in the shape of the stubs generated from an OpenAPI
+     * definition. Every other resource has a path param.
+     */
+    static Document serviceDocument(int nResources) throws IOException {
+        StringBuilder builder = new StringBuilder("import ballerina/http;\n\n")
+                .append("listener http:Listener ep0 = new (8243, config = {host: \"localhost\"});\n\n")
+                .append("service /bench/'1\\.0\\.0 on ep0 {\n");
+
+        for (int i = 0; i < nResources; i++) {
+            String path = i % 2 == 0 ? String.format("resource%d/items", i) :
+                    String.format("resource%d/items/[string id]", i);
+            builder.append(String.format("    resource function get %s() returns json {\n    }\n", path));
+        }
+
+        builder.append("}\n");
+        Project project = BuildProject.load(createProject("bench", "bench_proxy", SERVICE_FILE, builder.toString()));
+        return getDocument(project.currentPackage().getDefaultModule(), SERVICE_FILE);
+    }
+
+    /**
+     * Creates the operations matching the resources of {@link #serviceDocument(int)}, each with the given number of
+     * request, response and fault policies.
+     */
+    static APIData apiData(int nResources, int chainLength) {
+        List<Operation> operations = new ArrayList<>();
+
+        for (int i = 0; i < nResources; i++) {
+            Operation operation = new Operation();
+            operation.setVerb("GET");
+            operation.setTarget(i % 2 == 0 ? String.format("/resource%d/items", i) :
+                                        String.format("/resource%d/items/{id}", i));
+
+            for (int j = 0; j < chainLength; j++) {
+                operation.getOperationPolicies().getRequest().add(policy(j));
+                operation.getOperationPolicies().getResponse().add(policy(j));
+                operation.getOperationPolicies().getFault().add(policy(j));
+            }
+
+            operations.add(operation);
+        }
+
+        APIData apiData = new APIData();
+        apiData.setOperations(operations);
+        return apiData;
+    }
+
+    /**
+     * Creates a policy package which defines the policy annotations itself, so that it can be compiled without
+     * pulling the policy validator package. The package has the given number of public functions, of which only
+     * three are policies.
+     */
+    static Project policyProject(int nFunctions) throws IOException {
+        StringBuilder builder = new StringBuilder()
+                .append("public annotation InFlow on function;\n")
+                .append("public annotation OutFlow on function;\n")
+                .append("public annotation FaultFlow on function;\n\n")
+                .append("public type MediationContext record {|\n    string httpMethod;\n    string resourcePath;\n|};\n\n");
+
+        for (int i = 0; i < nFunctions; i++) {
+            builder.append(String.format("public function helper%d(string s) returns string {\n" +
+                                                 "    return s;\n}\n\n", i));
+        }
+
+        builder.append("@InFlow\npublic function bench_In(anydata req, MediationContext ctx) returns boolean {\n")
+                .append("    return true;\n}\n\n")
+                .append("@OutFlow\npublic function bench_Out(anydata res, anydata req, MediationContext ctx) ")
+                .append("returns boolean {\n    return true;\n}\n\n")
+                .append("@FaultFlow\npublic function bench_Fault(anydata errRes, error e, anydata res, anydata req, ")
+                .append("MediationContext ctx) returns boolean {\n    return true;\n}\n");
+
+        return BuildProject.load(createProject(POLICY_ORG, "policy_validator", "policy.bal", builder.toString()));
+    }
+
+    /**
+     * Finds the function bodies of the resources in the given service, in the order they were defined.
+     */
+    static List<Node> resourceBodies(Document serviceDoc) {
+        List<Node> bodies = new ArrayList<>();
+        ModulePartNode modulePart = serviceDoc.syntaxTree().rootNode();
+
+        for (ModuleMemberDeclarationNode member : modulePart.members()) {
+            if (member.kind() != SyntaxKind.SERVICE_DECLARATION) {
+                continue;
+            }
+
+            for (Node serviceMember : ((ServiceDeclarationNode) member).members()) {
+                if (serviceMember.kind() == SyntaxKind.RESOURCE_ACCESSOR_DEFINITION) {
+                    bodies.add(((FunctionDefinitionNode) serviceMember).functionBody());
+                }
+            }
+        }
+
+        return bodies;
+    }
+
+    /**
+     * Creates a code generator whose policy manager resolves every policy to the given package.
+     */
+    static CodeGenerator codeGenerator(PolicyPackage policyPackage, Map<String, Operation> operations) {
+        return codeGenerator(policyPackage, operations, false);
+    }
+
+    static CodeGenerator codeGenerator(PolicyPackage policyPackage, Map<String, Operation> operations,
+                                       boolean sharedMediation) {
+        PolicyPackageLoader loader = new PolicyPackageLoader(Paths.get(System.getProperty("ballerina.home")),
+                                                             Paths.get(System.getProperty("java.io.tmpdir"))) {
+            @Override
+            public PolicyPackage loadPackage(PackageID id) {
+                return policyPackage;
+            }
+        };
+        return new CodeGenerator(readTemplate("inflow_template.bal"), readTemplate("outflow_template.bal"),
+                                 readTemplate("faultflow_template.bal"), new PolicyManager(loader), operations,
+                                 sharedMediation);
+    }
+
+    private static String readTemplate(String name) {
+        try (InputStream in = BenchmarkFixtures.class.getClassLoader()
+                .getResourceAsStream("code-snippets/" + name)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Policy policy(int index) {
+        Policy policy = new Policy();
+        policy.setPolicyName(String.format("%s/policy_validator", POLICY_ORG));
+        policy.setPolicyVersion("1.0.0");
+        policy.setPolicyId("policy-" + index);
+        policy.setParameters(Map.of("headerName", "X-Bench-" + index, "headerValue", "value"));
+        return policy;
+    }
+
+    private static Path createProject(String org, String name, String fileName, String content) throws IOException {
+        Path projectPath = Files.createTempDirectory("proxygen-bench-");
+        Files.writeString(projectPath.resolve("Ballerina.toml"),
+                          String.format("[package]\norg = \"%s\"\nname = \"%s\"\nversion = \"1.0.0\"\n", org, name));
+        Files.writeString(projectPath.resolve(fileName), content);
+        return projectPath;
+    }
+}
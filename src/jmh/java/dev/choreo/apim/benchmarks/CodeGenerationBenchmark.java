@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim.benchmarks;
+
+import dev.choreo.apim.CodeContext;
+import dev.choreo.apim.CodeGenerator;
+import dev.choreo.apim.PolicyPackage;
+import dev.choreo.apim.SyntaxTreeTransformer;
+import dev.choreo.apim.artifact.model.APIData;
+import dev.choreo.apim.artifact.model.Operation;
+import io.ballerina.compiler.syntax.tree.Node;
+import io.ballerina.projects.Document;
+import io.ballerina.tools.text.TextDocumentChange;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the code generation over synthetic services. Run with {@code -prof gc} to get the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodeGenerationBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    private int nResources;
+
+    @Param({"0", "1", "5"})
+    private int chainLength;
+
+    @Param({"false", "true"})
+    private boolean sharedMediation;
+
+    private Document serviceDoc;
+    private Map<String, Operation> operations;
+    private PolicyPackage policyPackage;
+    private CodeGenerator codegen;
+    private CodeContext[] bodyContexts;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.serviceDoc = BenchmarkFixtures.serviceDocument(this.nResources);
+        APIData apiData = BenchmarkFixtures.apiData(this.nResources, this.chainLength);
+        this.operations = apiData.toOpsMap();
+        this.policyPackage = new PolicyPackage(BenchmarkFixtures.policyProject(10));
+        this.codegen = BenchmarkFixtures.codeGenerator(this.policyPackage, this.operations);
+
+        List<Node> bodies = BenchmarkFixtures.resourceBodies(this.serviceDoc);
+        this.bodyContexts = new CodeContext[bodies.size()];
+        for (int i = 0; i < bodies.size(); i++) {
+            this.bodyContexts[i] = new CodeContext(null, bodies.get(i));
+        }
+    }
+
+    private CodeContext nextContext() {
+        CodeContext ctx = this.bodyContexts[this.cursor];
+        this.cursor = (this.cursor + 1) % this.bodyContexts.length;
+        return ctx;
+    }
+
+    @Benchmark
+    public TextDocumentChange modifyDoc() {
+        // A fresh code generator per run, since the generator accumulates the imports of the document
+        CodeGenerator freshCodegen = BenchmarkFixtures.codeGenerator(this.policyPackage, this.operations,
+                                                                     this.sharedMediation);
+        return new SyntaxTreeTransformer().modifyDoc(this.serviceDoc, freshCodegen);
+    }
+
+    @Benchmark
+    public String generateDoBlock() {
+        return this.codegen.generateDoBlock(nextContext(), 2);
+    }
+
+    @Benchmark
+    public String generateInflow() {
+        return this.codegen.generateInflow(nextContext());
+    }
+
+    @Benchmark
+    public String generateOutflow() {
+        return this.codegen.generateOutflow(nextContext());
+    }
+
+    @Benchmark
+    public String resourceMethodSignature() {
+        // The signature is memoized in the context, so a new context is needed to measure the computation
+        CodeContext ctx = nextContext();
+        return new CodeContext(ctx.parent(), ctx.node()).resourceMethodSignature();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim.benchmarks;
+
+import dev.choreo.apim.PolicyPackage;
+import dev.choreo.apim.artifact.model.APIData;
+import dev.choreo.apim.artifact.model.Operation;
+import io.ballerina.projects.Project;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the lookups done per operation: building the operations map from the API metadata and resolving the
+ * policy functions of a policy package. Run with {@code -prof gc} to get the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PolicyLookupBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    private int nOperations;
+
+    private APIData apiData;
+    private Project policyProject;
+    private PolicyPackage policyPackage;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.apiData = BenchmarkFixtures.apiData(this.nOperations, 3);
+        this.policyProject = BenchmarkFixtures.policyProject(50);
+        this.policyPackage = new PolicyPackage(this.policyProject);
+        this.policyPackage.getInFlowPolicy();
+    }
+
+    @Benchmark
+    public Map<String, Operation> toOpsMap() {
+        return this.apiData.toOpsMap();
+    }
+
+    @Benchmark
+    public Optional<?> getInFlowPolicy() {
+        return this.policyPackage.getInFlowPolicy();
+    }
+
+    @Benchmark
+    public Optional<?> getInFlowPolicyCold() {
+        // The compilation is cached in the project, so this measures resolving the policy function from the
+        // module symbols.
+        return new PolicyPackage(this.policyProject).getInFlowPolicy();
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim;
+
+import dev.choreo.apim.artifact.model.ClientConfig;
+import dev.choreo.apim.artifact.model.Endpoint;
+import dev.choreo.apim.artifact.model.EndpointConfig;
+import dev.choreo.apim.artifact.model.PoolConfig;
+import dev.choreo.apim.utils.MediationCodeGenException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static dev.choreo.apim.artifact.model.EndpointConfig.FAILOVER;
+import static dev.choreo.apim.artifact.model.EndpointConfig.HTTP;
+import static dev.choreo.apim.artifact.model.EndpointConfig.LOAD_BALANCE;
+import static dev.choreo.apim.utils.Utils.toStringLiteral;
+import static java.lang.String.format;
+
+/**
+ * Generates the HTTP client of the backend endpoints. The client settings of the endpoint config are the defaults of
+ * configurable variables, so that they can be tuned per environment (e.g., through the Config.toml) without
+ * regenerating the service.
+ */
+final class BackendClientGenerator {
+
+    private static final Set<String> HTTP_VERSIONS = Set.of("1.0", "1.1", "2.0");
+    private static final Set<String> KEEP_ALIVE_MODES = Set.of("AUTO", "ALWAYS", "NEVER");
+
+    private BackendClientGenerator() {
+    }
+
+    static String generate(String template, EndpointConfig endpointConfig) {
+        ClientConfig config = endpointConfig.getClient_config() != null
+                ? endpointConfig.getClient_config() : new ClientConfig();
+        PoolConfig pool = config.getPool() != null ? config.getPool() : new PoolConfig();
+
+        if (!HTTP_VERSIONS.contains(config.getHttpVersion())) {
+            throw new MediationCodeGenException("Unsupported backend HTTP version: " + config.getHttpVersion());
+        }
+
+        if (!KEEP_ALIVE_MODES.contains(config.getKeepAlive())) {
+            throw new MediationCodeGenException("Unsupported backend keep-alive mode: " + config.getKeepAlive());
+        }
+
+        return format(template,
+                      toStringLiteral(config.getHttpVersion()),
+                      toDecimalLiteral(config.getTimeout(), "timeout"),
+                      toStringLiteral(config.getKeepAlive()),
+                      config.isHttp2PriorKnowledge(),
+                      pool.getMaxActiveConnections(),
+                      pool.getMaxIdleConnections(),
+                      toDecimalLiteral(pool.getWaitTime(), "pool wait time"),
+                      pool.getMaxActiveStreamsPerConnection(),
+                      generateClient(endpointConfig));
+    }
+
+    /**
+     * Generates the declaration of the backend client, as per the endpoint config of API-M: a plain client for a
+     * single endpoint, a load-balanced client for a list of production endpoints, or a failover client for a
+     * production endpoint followed by its {@code production_failovers}. If there are sandbox endpoints, the client can
+     * be pointed at them through the {@code useSandboxEndpoint} configurable variable. The endpoint-level settings
+     * (e.g., the suspension of unhealthy endpoints and active health checks) are not supported, so the failover client
+     * fails over on the default status codes (501 to 504).
+     */
+    private static String generateClient(EndpointConfig endpointConfig) {
+        String type = endpointConfig.getEndpoint_type() != null ? endpointConfig.getEndpoint_type() : HTTP;
+        List<String> urls = getUrls(endpointConfig.getProduction_endpoints(), "production");
+        List<String> sandboxUrls = endpointConfig.getSandbox_endpoints() != null
+                ? getUrls(endpointConfig.getSandbox_endpoints(), "sandbox") : new ArrayList<>();
+        StringBuilder builder = new StringBuilder();
+
+        if (!sandboxUrls.isEmpty()) {
+            builder.append("configurable boolean useSandboxEndpoint = false;\n\n");
+        }
+
+        switch (type) {
+            case HTTP:
+                if (urls.size() > 1 || sandboxUrls.size() > 1) {
+                    throw new MediationCodeGenException(format("Several endpoints need the '%s' endpoint type",
+                                                               LOAD_BALANCE));
+                }
+
+                String url = !sandboxUrls.isEmpty()
+                        ? format("useSandboxEndpoint ? %s : %s", sandboxUrls.get(0), urls.get(0)) : urls.get(0);
+                return builder.append(format("final http:Client backendEP = check new(%s, {...backendClientConfig});",
+                                             url)).toString();
+            case LOAD_BALANCE:
+                // Unless turned off, the load-balanced client tries the next endpoint on a connection error
+                boolean failover = !"false".equalsIgnoreCase(endpointConfig.getFailOver());
+                return builder.append(format("final http:LoadBalanceClient backendEP = check new({\n"
+                                                     + "    ...backendClientConfig,\n"
+                                                     + "    targets: %s,\n"
+                                                     + "    failover: %b\n"
+                                                     + "});", toTargets(urls, sandboxUrls), failover)).toString();
+            case FAILOVER:
+                if (urls.size() > 1 || sandboxUrls.size() > 1) {
+                    throw new MediationCodeGenException(
+                            "A failover endpoint config takes the endpoints to fail over to in production_failovers "
+                                    + "and sandbox_failovers");
+                }
+
+                addUrls(urls, endpointConfig.getProduction_failovers(), "production");
+                if (!sandboxUrls.isEmpty()) {
+                    addUrls(sandboxUrls, endpointConfig.getSandbox_failovers(), "sandbox");
+                }
+
+                return builder.append(format("final http:FailoverClient backendEP = check new({\n"
+                                                     + "    ...backendClientConfig,\n"
+                                                     + "    targets: %s\n"
+                                                     + "});", toTargets(urls, sandboxUrls))).toString();
+            default:
+                throw new MediationCodeGenException("Unsupported endpoint type: " + type);
+        }
+    }
+
+    private static String toTargets(List<String> urls, List<String> sandboxUrls) {
+        String targets = toTargets(urls);
+        return !sandboxUrls.isEmpty() ? format("useSandboxEndpoint ? %s : %s", toTargets(sandboxUrls), targets)
+                : targets;
+    }
+
+    private static String toTargets(List<String> urls) {
+        return urls.stream().map(url -> "{url: " + url + "}").collect(Collectors.joining(", ", "[", "]"));
+    }
+
+    /**
+     * Reads the URLs of the {@code production_endpoints} or the {@code sandbox_endpoints}, which are either a single
+     * endpoint or a list of endpoints.
+     */
+    private static List<String> getUrls(Object endpoints, String kind) {
+        List<?> endpointList = endpoints instanceof List ? (List<?>) endpoints : Collections.singletonList(endpoints);
+
+        if (endpointList.isEmpty()) {
+            throw new MediationCodeGenException(format("The %s endpoints are unavailable", kind));
+        }
+
+        List<String> urls = new ArrayList<>();
+        for (Object endpoint : endpointList) {
+            Object url = endpoint instanceof Map ? ((Map<?, ?>) endpoint).get("url") : null;
+            urls.add(toUrlLiteral(url instanceof String ? (String) url : null, kind));
+        }
+        return urls;
+    }
+
+    private static void addUrls(List<String> urls, List<Endpoint> endpoints, String kind) {
+        if (endpoints != null) {
+            for (Endpoint endpoint : endpoints) {
+                urls.add(toUrlLiteral(endpoint != null ? endpoint.getUrl() : null, kind));
+            }
+        }
+    }
+
+    private static String toUrlLiteral(String url, String kind) {
+        if (url == null || url.isBlank()) {
+            throw new MediationCodeGenException(format("The URL of a %s endpoint is unavailable", kind));
+        }
+        return toStringLiteral(url);
+    }
+
+    private static String toDecimalLiteral(BigDecimal value, String setting) {
+        if (value == null || value.signum() < 0) {
+            throw new MediationCodeGenException(format("Invalid backend %s: %s", setting, value));
+        }
+        return value.toPlainString();
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim;
+
+import dev.choreo.apim.artifact.ApiArtifact;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Generates mediation services for a set of API artifacts within a single JVM. The artifacts are processed by a
+ * bounded pool of workers which share the same policy package loader and policy manager.
+ */
+public class BatchProxyGenerator {
+
+    private final ProxyGenerator generator;
+    private final int nWorkers;
+
+    public BatchProxyGenerator(ProxyGenerator generator, int nWorkers) {
+        if (nWorkers < 1) {
+            throw new IllegalArgumentException("Number of workers should be at least 1: " + nWorkers);
+        }
+        this.generator = generator;
+        this.nWorkers = nWorkers;
+    }
+
+    /**
+     * Usage: {@code BatchProxyGenerator <bal home> <artifacts dir | artifact list file> [<no. of workers>]}
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException(
+                    "Usage: BatchProxyGenerator <bal home> <artifacts dir | artifact list file> [<no. of workers>]");
+        }
+
+        // Needs to be the actual bal distribution. e.g., ballerina-2201.0.0-swan-lake/distributions/ballerina-2201.0.3
+        System.setProperty("ballerina.home", args[0]);
+        int nWorkers = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        BatchProxyGenerator batchGenerator = new BatchProxyGenerator(ProxyGenerator.create(Paths.get(args[0])),
+                                                                     nWorkers);
+        List<GenerationResult> results = batchGenerator.generate(listArtifacts(Paths.get(args[1])),
+                                                                 Path.of(System.getProperty("user.dir")));
+        long nFailed = printReport(results, System.out);
+
+        if (nFailed > 0) {
+            System.exit(1);
+        }
+    }
+
+    public List<GenerationResult> generate(List<Path> artifacts, Path destPath) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(this.nWorkers, artifacts.size())));
+        List<Future<GenerationResult>> futures = new ArrayList<>();
+
+        try {
+            for (Path artifact : artifacts) {
+                futures.add(executor.submit(() -> generate(artifact, destPath)));
+            }
+
+            List<GenerationResult> results = new ArrayList<>();
+            for (Future<GenerationResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    // generate(Path, Path) captures all failures in the result, so this should not be reachable
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private GenerationResult generate(Path artifact, Path destPath) {
+        long start = System.currentTimeMillis();
+
+        try {
+            Path projectPath = this.generator.generate(artifact, destPath);
+            return GenerationResult.success(artifact, projectPath, System.currentTimeMillis() - start);
+        } catch (Exception | AssertionError e) {
+            return GenerationResult.failure(artifact, e, System.currentTimeMillis() - start);
+        }
+    }
+
+    private static List<Path> listArtifacts(Path source) throws IOException {
+        if (Files.isDirectory(source)) {
+            try (Stream<Path> files = Files.list(source)) {
+                return files.filter(BatchProxyGenerator::isArtifact)
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+        }
+
+        // Otherwise, a file listing the artifact paths, one per line
+        try (Stream<String> lines = Files.lines(source)) {
+            return lines.map(String::trim)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .map(Paths::get)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static boolean isArtifact(Path path) {
+        if (Files.isDirectory(path)) {
+            return Files.exists(path.resolve(ApiArtifact.API_YAML));
+        }
+
+        String fileName = path.getFileName().toString();
+        return fileName.endsWith(".zip") || fileName.endsWith(".tar.gz") || fileName.endsWith(".tgz");
+    }
+
+    private static long printReport(List<GenerationResult> results, PrintStream out) {
+        results.forEach(out::println);
+        long nFailed = results.stream().filter(result -> !result.isSuccess()).count();
+        out.printf("%nGenerated %d of %d artifacts (%d failed)%n", results.size() - nFailed, results.size(), nFailed);
+        return nFailed;
+    }
+}
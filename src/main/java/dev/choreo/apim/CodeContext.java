@@ -25,6 +25,7 @@ import io.ballerina.compiler.syntax.tree.SyntaxKind;
 import io.ballerina.compiler.syntax.tree.Token;
 
 import static dev.choreo.apim.utils.Utils.buildOpKey;
+import static dev.choreo.apim.utils.Utils.unescapeIdentifier;
 
 public class CodeContext {
 
@@ -84,15 +85,14 @@ public class CodeContext {
         for (Node pathSegment : pathSegments) {
             switch (pathSegment.kind()) {
                 case IDENTIFIER_TOKEN:
-                    String path = ((Token) pathSegment).text();
-                    if (path.startsWith("'")) {
-                        path = path.substring(1);
-                    }
-                    pathBuilder.append(path);
+                    pathBuilder.append(unescapeIdentifier(((Token) pathSegment).text()));
                     break;
                 case SLASH_TOKEN:
                     pathBuilder.append("/");
                     break;
+                case DOT_TOKEN:
+                    // The root resource path
+                    break;
                 case RESOURCE_PATH_SEGMENT_PARAM:
                     pathBuilder.append('*');
                     break;
@@ -18,11 +18,13 @@
 
 package dev.choreo.apim;
 
+import dev.choreo.apim.artifact.model.AttachedPolicies;
 import dev.choreo.apim.artifact.model.Operation;
 import dev.choreo.apim.artifact.model.Policy;
+import dev.choreo.apim.artifact.model.ResponseCacheConfig;
 import dev.choreo.apim.code.builders.DoBlock;
 import dev.choreo.apim.code.builders.MappingConstructorBuilder;
-import io.ballerina.compiler.api.symbols.FunctionSymbol;
+import dev.choreo.apim.utils.MediationCodeGenException;
 import io.ballerina.compiler.syntax.tree.FunctionDefinitionNode;
 import io.ballerina.compiler.syntax.tree.FunctionSignatureNode;
 import io.ballerina.compiler.syntax.tree.Node;
@@ -30,9 +32,19 @@ import io.ballerina.compiler.syntax.tree.ResourcePathParameterNode;
 import io.ballerina.compiler.syntax.tree.SyntaxKind;
 import io.ballerina.compiler.syntax.tree.Token;
 
-import java.util.HashSet;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static dev.choreo.apim.utils.Names.BACKEND_ENDPOINT;
 import static dev.choreo.apim.utils.Names.BACKEND_RESPONSE;
@@ -46,26 +58,122 @@ import static dev.choreo.apim.utils.Names.MEDIATION_CONTEXT_RESOURCE_PATH;
 import static dev.choreo.apim.utils.Names.MEDIATION_CONTEXT_TYPE;
 import static dev.choreo.apim.utils.Names.MEDIATION_CONTEXT_VAR;
 import static dev.choreo.apim.utils.Names.POLICY_VALIDATOR_PKG;
+import static dev.choreo.apim.utils.Utils.newSha256Digest;
+import static dev.choreo.apim.utils.Utils.readResource;
+import static dev.choreo.apim.utils.Utils.toHex;
+import static dev.choreo.apim.utils.Utils.toStringLiteral;
+import static dev.choreo.apim.utils.Utils.unescapeIdentifier;
 import static java.lang.String.format;
 
 public class CodeGenerator {
 
+    /**
+     * The version of the shape of the generated code. This is bumped when the code generated for a resource would no
+     * longer fit in with the code an earlier version generated, so that such services are regenerated in full.
+     */
+    public static final int GENERATED_CODE_VERSION = 7;
+
+    public static final String GENERATED_MEMBERS_BEGIN = "// ---- Generated module members ----";
+    public static final String GENERATED_MEMBERS_END = "// ---- End of generated module members ----";
+    /**
+     * The standard library modules the generated mediation imports when some resource needs them (e.g., for a
+     * response cache). The service itself always imports {@code ballerina/http}.
+     */
+    static final Set<String> MEDIATION_STDLIB_IMPORTS = Set.of("ballerina/cache", "ballerina/time", "ballerina/observe",
+                                                               "ballerinax/prometheus", "ballerinax/jaeger");
+    private static final String SHARED_MEDIATION_FN_PREFIX = "mediate_";
+    private static final String MEDIATION_CONTEXT_CONST_PREFIX = "MEDIATION_CTX_";
+    private static final String RESPONSE_CACHE_CONST_PREFIX = "RESPONSE_CACHE_";
+    private static final String STAGE_METRICS_CONST_PREFIX = "STAGE_METRICS_";
+    private static final String BACKEND_STAGE = "backend";
+    private static final String POLICY_FUTURE_PREFIX = "policyFuture";
+    // The statement of a flow template the policy is invoked in, e.g., var x = check %s;
+    private static final Pattern POLICY_INVOCATION = Pattern.compile("^(\\s*)var (\\w+) = (check )?%s;$",
+                                                                     Pattern.MULTILINE);
+
     private final String inflowTemplate;
+    // The inflow template as is, for the policies which are timed in the strands they are started in
+    private final String startedInflowTemplate;
     private final String outflowTemplate;
     private final String faultflowTemplate;
     private final Map<String, Operation> operations;
     private final PolicyManager policyManager;
-    private final Set<String> imports;
+    // Module name (i.e., <org>/<module>) -> prefix the module is imported with
+    private final Map<String, String> imports;
+    private final boolean sharedMediation;
+    private final boolean observability;
+    // Constant name -> declaration, for the arguments of the policy calls
+    private final ModuleConstants constants = new ModuleConstants();
+    // Function name -> shared mediation function, for the distinct policy chains
+    private final Map<String, String> mediationFunctions = new TreeMap<>();
+    private final Map<String, String> mediationFunctionNames = new HashMap<>();
+    private boolean responseCacheUsed;
+    private boolean stageMetricsUsed;
     private final String paramSignature = format("http:Caller %s, http:Request %s", CALLER, INCOMING_REQUEST);
 
     public CodeGenerator(String inflowTemplate, String outflowTemplate, String faultflowTemplate,
                          PolicyManager policyManager, Map<String, Operation> operations) {
-        this.inflowTemplate = inflowTemplate;
-        this.outflowTemplate = outflowTemplate;
-        this.faultflowTemplate = faultflowTemplate;
+        this(inflowTemplate, outflowTemplate, faultflowTemplate, policyManager, operations, false);
+    }
+
+    public CodeGenerator(String inflowTemplate, String outflowTemplate, String faultflowTemplate,
+                         PolicyManager policyManager, Map<String, Operation> operations, boolean sharedMediation) {
+        this(inflowTemplate, outflowTemplate, faultflowTemplate, policyManager, operations, sharedMediation, false);
+    }
+
+    /**
+     * @param sharedMediation Whether to generate a module-level mediation function per distinct policy chain, which
+     *                        the resources with that chain call, instead of inlining the mediation in each resource
+     * @param observability   Whether to instrument the policy invocations and the backend calls with latency metrics
+     *                        and tracing spans. No instrumentation code is generated otherwise.
+     */
+    public CodeGenerator(String inflowTemplate, String outflowTemplate, String faultflowTemplate,
+                         PolicyManager policyManager, Map<String, Operation> operations, boolean sharedMediation,
+                         boolean observability) {
+        this.inflowTemplate = observability ? instrumentTemplate(inflowTemplate) : inflowTemplate;
+        this.startedInflowTemplate = inflowTemplate;
+        this.outflowTemplate = observability ? instrumentTemplate(outflowTemplate) : outflowTemplate;
+        this.faultflowTemplate = observability ? instrumentTemplate(faultflowTemplate) : faultflowTemplate;
         this.operations = operations;
         this.policyManager = policyManager;
-        this.imports = new HashSet<>();
+        this.imports = new HashMap<>();
+        this.sharedMediation = sharedMediation;
+        this.observability = observability;
+
+        if (observability) {
+            // Publishes the metrics and the traces of the service
+            addToImports("ballerinax", "prometheus", "_");
+            addToImports("ballerinax", "jaeger", "_");
+        }
+    }
+
+    /**
+     * Times the policy invocation of a flow template and traces it in a span of its own. The instrumented template
+     * takes the policy call, the name of the stage (as a string literal) and the metrics of the stage.
+     */
+    private static String instrumentTemplate(String template) {
+        Matcher matcher = POLICY_INVOCATION.matcher(template);
+
+        if (!matcher.find()) {
+            throw new AssertionError("Failed to find the policy invocation in the template: " + template);
+        }
+
+        String indentation = matcher.group(1);
+        String check = matcher.group(3) != null ? matcher.group(3) : "";
+        String instrumented = indentation + "decimal stageStart = time:monotonicNow();\n"
+                + indentation + "int? stageSpan = startSpan(%2$s);\n"
+                + indentation + "var stageResult = %1$s;\n"
+                + indentation + "endStage(%3$s, stageStart, stageSpan);\n"
+                + indentation + "var " + matcher.group(2) + " = " + check + "stageResult;";
+        return template.substring(0, matcher.start()) + instrumented + template.substring(matcher.end());
+    }
+
+    public boolean isSharedMediation() {
+        return this.sharedMediation;
+    }
+
+    public boolean isObservability() {
+        return this.observability;
     }
 
     public String modifyListener() {
@@ -80,9 +188,62 @@ public class CodeGenerator {
         return "error?";
     }
 
+    /**
+     * Generates the declaration of the mediation context of a resource. Resources with a static path copy a
+     * module-level readonly context, which is built once, while the others build a context with the values of their
+     * path parameters. Either way, each request gets a mutable context of its own, as policies may rewrite it (e.g.,
+     * the resource path). Pass-through resources (i.e., the ones without policies) have no context, whether or not the
+     * mediation is shared.
+     */
     public String generateMediationContextRecord(CodeContext ctx) {
+        if (!needsMediationContext(ctx)) {
+            return "";
+        }
+
         // TODO: 2022-06-10 See if it'd be better to use the Semantic API to get the field info of MediationContext.
         MappingConstructorBuilder builder = new MappingConstructorBuilder();
+        String httpMethod = String.format("\"%s\"", ctx.resourceMethodName());
+        String resourcePath = generateResourcePath(ctx);
+        builder.addMapping("httpMethod", httpMethod);
+        builder.addMapping("resourcePath", resourcePath);
+        addToImports(BUILTIN_POLICY_ORG, POLICY_VALIDATOR_PKG);
+
+        if (!isStaticPath(resourcePath)) {
+            return String.format("%s:%s %s = %s;\n", POLICY_VALIDATOR_PKG, MEDIATION_CONTEXT_TYPE,
+                                 MEDIATION_CONTEXT_VAR, builder.build());
+        }
+
+        String constName = this.constants.add(MEDIATION_CONTEXT_CONST_PREFIX, httpMethod + ' ' + resourcePath,
+                                              name -> String.format("final readonly & %s:%s %s = %s;",
+                                                                    POLICY_VALIDATOR_PKG, MEDIATION_CONTEXT_TYPE,
+                                                                    name, builder.build()));
+        return String.format("%s:%s %s = {...%s};\n", POLICY_VALIDATOR_PKG, MEDIATION_CONTEXT_TYPE,
+                             MEDIATION_CONTEXT_VAR, constName);
+    }
+
+    private boolean needsMediationContext(CodeContext ctx) {
+        return !isPassThrough(this.operations.get(ctx.resourceMethodSignature()));
+    }
+
+    /**
+     * Whether a resource only forwards the request to the backend, i.e., its operation has no policies or is not in
+     * the API artifact at all.
+     */
+    private static boolean isPassThrough(Operation operation) {
+        return operation == null || !hasPolicies(operation);
+    }
+
+    private static boolean hasPolicies(Operation operation) {
+        AttachedPolicies policies = operation.getOperationPolicies();
+        return !(policies.getRequest().isEmpty() && policies.getResponse().isEmpty()
+                && policies.getFault().isEmpty());
+    }
+
+    /**
+     * Generates the expression of the resource path of a resource: a string literal if the path is static, or a string
+     * template with the path parameters otherwise.
+     */
+    private static String generateResourcePath(CodeContext ctx) {
         Node node = ctx.node();
 
         while (node != null && node.kind() != SyntaxKind.RESOURCE_ACCESSOR_DEFINITION) {
@@ -94,23 +255,23 @@ public class CodeGenerator {
         }
 
         FunctionDefinitionNode func = (FunctionDefinitionNode) node;
-        builder.addMapping("httpMethod", String.format("\"%s\"", ctx.resourceMethodName()));
+        StringBuilder pathBuilder = new StringBuilder("/");
+        boolean isStatic = true;
 
-        StringBuilder pathBuilder = new StringBuilder("string `/");
         for (Node pathSegment : func.relativeResourcePath()) {
             switch (pathSegment.kind()) {
                 case IDENTIFIER_TOKEN:
-                    String path = ((Token) pathSegment).text();
-                    if (path.startsWith("'")) {
-                        path = path.substring(1);
-                    }
-                    pathBuilder.append(path);
+                    pathBuilder.append(unescapeIdentifier(((Token) pathSegment).text()));
                     break;
                 case SLASH_TOKEN:
                     pathBuilder.append("/");
                     break;
+                case DOT_TOKEN:
+                    // The root resource path
+                    break;
                 case RESOURCE_PATH_SEGMENT_PARAM:
                     pathBuilder.append("${").append(((ResourcePathParameterNode) pathSegment).paramName()).append("}");
+                    isStatic = false;
                     break;
                 case RESOURCE_PATH_REST_PARAM:
                     // TODO: 2022-06-10 Ignoring rest params for now. Implement this later.
@@ -119,57 +280,267 @@ public class CodeGenerator {
                     throw new AssertionError("Unexpected syntax kind: " + pathSegment.kind());
             }
         }
-        pathBuilder.append("`");
-        builder.addMapping("resourcePath", pathBuilder.toString());
 
-        addToImports(BUILTIN_POLICY_ORG, POLICY_VALIDATOR_PKG);
-        return String.format("%s:%s %s = %s;\n", POLICY_VALIDATOR_PKG, MEDIATION_CONTEXT_TYPE, MEDIATION_CONTEXT_VAR,
-                             builder.build());
+        return isStatic ? toStringLiteral(pathBuilder.toString()) : format("string `%s`", pathBuilder);
+    }
+
+    private static boolean isStaticPath(String resourcePath) {
+        return resourcePath.startsWith("\"");
+    }
+
+    /**
+     * Generates the mediation of a resource: either the mediation itself, or a call to the shared mediation function
+     * of its policy chain.
+     */
+    public String generateMediation(CodeContext ctx, int nTabs) {
+        Operation operation = this.operations.get(ctx.resourceMethodSignature());
+
+        if (isPassThrough(operation)) {
+            return generatePassThrough(ctx.resourceMethodSignature(), generateBackendHTTPCall(ctx), nTabs);
+        }
+
+        // Each operation with a response cache has a cache of its own, so it cannot share a mediation function
+        if (!this.sharedMediation || operation.getResponseCache() != null) {
+            return generateDoBlock(ctx, nTabs);
+        }
+
+        String fnName = addMediationFunction(ctx);
+        return format("%sreturn %s(%s, %s, %s);\n", "\t".repeat(nTabs), fnName, CALLER, INCOMING_REQUEST,
+                      MEDIATION_CONTEXT_VAR);
+    }
+
+    /**
+     * Generates the body of a resource without policies, which forwards the request to the backend and responds with
+     * the backend response as is. Errors are left to the listener, as there is no fault flow to run.
+     */
+    private String generatePassThrough(String scope, String backendCall, int nTabs) {
+        String indentation = "\t".repeat(nTabs);
+        StringBuilder builder = new StringBuilder();
+
+        for (String stmt : instrumentBackendCall(backendCall, scope)) {
+            builder.append(indentation).append(stmt).append('\n');
+        }
+
+        return builder.append(indentation).append(format("check %s->respond(%s);\n", CALLER, BACKEND_RESPONSE))
+                .toString();
     }
 
     public String generateDoBlock(CodeContext ctx, int nTabs) {
+        return generateDoBlock(this.operations.get(ctx.resourceMethodSignature()), ctx.resourceMethodSignature(),
+                               generateBackendHTTPCall(ctx), nTabs);
+    }
+
+    /**
+     * @param scope The name the metrics of the mediation are recorded under: the resource, or the shared mediation
+     *              function
+     */
+    private String generateDoBlock(Operation operation, String scope, String backendCall, int nTabs) {
         DoBlock doBlock = new DoBlock(nTabs);
+        doBlock.addStatement(generateInflow(operation, scope));
+        instrumentBackendCall(backendCall, scope).forEach(doBlock::addStatement);
         return doBlock
-                .addStatement(generateInflow(ctx))
-                .addStatement(generateBackendHTTPCall(ctx))
-                .addStatement(generateOutflow(ctx))
+                .addStatement(generateOutflow(operation, scope))
                 .addStatement(format("check %s->respond(%s);", CALLER, BACKEND_RESPONSE))
                 .addStatementToOnFail(format("http:Response %s = createDefaultErrorResponse(e);", ERROR_FLOW_RESPONSE))
-                .addStatementToOnFail(generateFaultFlow(ctx))
+                .addStatementToOnFail(generateFaultFlow(operation, scope))
                 .addStatementToOnFail(format("check %s->respond(%s);", CALLER, ERROR_FLOW_RESPONSE))
                 .build();
     }
 
-    public String generateInflow(CodeContext ctx) {
+    /**
+     * Times the backend call, if the observability is on. The call is not traced here, as the HTTP client traces its
+     * calls itself.
+     */
+    private List<String> instrumentBackendCall(String backendCall, String scope) {
+        if (!this.observability) {
+            return List.of(backendCall);
+        }
+
+        return List.of("decimal backendStart = time:monotonicNow();", backendCall,
+                       format("endStage(%s, backendStart);", addStageMetrics(scope, BACKEND_STAGE)));
+    }
+
+    /**
+     * Records the metrics (i.e., the latency summary and the call counter) a stage (i.e., a policy or the backend
+     * call) of a mediation is reported through.
+     *
+     * @return The name of the metrics
+     */
+    private String addStageMetrics(String scope, String stage) {
+        String metricsName = this.constants.add(STAGE_METRICS_CONST_PREFIX, scope + '\n' + stage,
+                                                name -> format("final StageMetrics %s = newStageMetrics(%s, %s);",
+                                                               name, toStringLiteral(scope), toStringLiteral(stage)));
+        addToImports("ballerina", "observe");
+        addToImports("ballerina", "time");
+        this.stageMetricsUsed = true;
+        return metricsName;
+    }
+
+    /**
+     * Records the shared mediation function of the policy chain of the given resource, generating the function if
+     * this is the first resource with that chain. The stage metrics are module-level, so those of a shared function
+     * are declared once and tagged with the function name, covering all the resources which share it.
+     *
+     * @return The name of the function
+     */
+    public String addMediationFunction(CodeContext ctx) {
         Operation operation = this.operations.get(ctx.resourceMethodSignature());
+        String chain = operation != null ? GenerationFingerprint.chainFingerprint(operation) : "";
+        String fnName = this.mediationFunctionNames.get(chain);
+
+        if (fnName != null) {
+            return fnName;
+        }
+
+        String hash = toHex(newSha256Digest().digest(chain.getBytes(StandardCharsets.UTF_8)));
+        int length = 8;
+        fnName = SHARED_MEDIATION_FN_PREFIX + hash.substring(0, length);
+
+        // Lengthens the name in the unlikely case of a collision with another chain
+        while (this.mediationFunctions.containsKey(fnName)) {
+            fnName = SHARED_MEDIATION_FN_PREFIX + hash.substring(0, ++length);
+        }
+
+        String fn = format("function %s(http:Caller %s, http:Request %s, %s:%s %s) returns error? {\n%s}\n", fnName,
+                           CALLER, INCOMING_REQUEST, POLICY_VALIDATOR_PKG, MEDIATION_CONTEXT_TYPE,
+                           MEDIATION_CONTEXT_VAR, generateDoBlock(operation, fnName, generateBackendHTTPCall(
+                                   operation, MEDIATION_CONTEXT_HTTP_METHOD, MEDIATION_CONTEXT_RESOURCE_PATH), 1));
+        this.mediationFunctions.put(fnName, fn);
+        this.mediationFunctionNames.put(chain, fnName);
+        return fnName;
+    }
 
+    /**
+     * Records the module-level members the mediation of the given resource depends on (e.g., the constants of its
+     * policy arguments, its response cache and its shared mediation function), without generating the mediation
+     * itself.
+     */
+    public void addModuleMembers(CodeContext ctx) {
+        generateMediationContextRecord(ctx);
+        generateMediation(ctx, 0);
+    }
+
+    /**
+     * Generates the module-level members which go after the service: the constants (e.g., the policy arguments and
+     * the response caches), the response cache functions and the shared mediation functions, if any. These are
+     * delimited with {@link #GENERATED_MEMBERS_BEGIN} and {@link #GENERATED_MEMBERS_END}, so that the section can be
+     * regenerated as a whole.
+     */
+    public String generateModuleMembers() {
+        List<String> sections = new ArrayList<>();
+
+        if (!this.constants.isEmpty()) {
+            sections.add(String.join("\n", this.constants.declarations()) + '\n');
+        }
+
+        if (this.responseCacheUsed) {
+            sections.add(ResponseCacheSnippet.CODE);
+        }
+
+        if (this.stageMetricsUsed) {
+            sections.add(ObservabilitySnippet.CODE);
+        }
+
+        if (!this.mediationFunctions.isEmpty()) {
+            sections.add(String.join("\n", this.mediationFunctions.values()));
+        }
+
+        if (sections.isEmpty()) {
+            return "";
+        }
+
+        return '\n' + GENERATED_MEMBERS_BEGIN + "\n\n" + String.join("\n", sections) + '\n' + GENERATED_MEMBERS_END
+                + '\n';
+    }
+
+    public String generateInflow(CodeContext ctx) {
+        return generateInflow(this.operations.get(ctx.resourceMethodSignature()), ctx.resourceMethodSignature());
+    }
+
+    /**
+     * Generates the invocations of the request policies. Consecutive policies which are independent (i.e., marked
+     * with the {@code Independent} annotation) are started together and then waited on in the order of the chain, so
+     * that the first of them which stops the mediation still decides the response.
+     */
+    private String generateInflow(Operation operation, String scope) {
         if (operation == null || operation.getOperationPolicies().getRequest().isEmpty()) {
             return null;
         }
 
         StringBuilder builder = new StringBuilder();
 
-        for (Policy policy : operation.getOperationPolicies().getRequest()) {
+        List<Policy> policies = operation.getOperationPolicies().getRequest();
+        List<PolicyPackage> packages = new ArrayList<>(policies.size());
+
+        for (Policy policy : policies) {
             PolicyPackage pkg = policyManager.get(policy.getPolicyName(), policy.getPolicyVersion());
-            builder.append(generateInFlowPolicyInvocation(pkg)).append('\n');
+            packages.add(pkg);
             addToImports(pkg);
         }
 
+        for (int i = 0; i < policies.size(); ) {
+            int end = i;
+            while (end < policies.size() && isIndependentInFlowPolicy(packages.get(end))) {
+                end++;
+            }
+
+            if (end - i < 2) {
+                builder.append(generateInFlowPolicyInvocation(packages.get(i), policies.get(i), scope, i))
+                        .append('\n');
+                i++;
+                continue;
+            }
+
+            for (int j = i; j < end; j++) {
+                builder.append(format("var %s%d = %s;\n", POLICY_FUTURE_PREFIX, j,
+                                      startPolicy(generateInFlowPolicyCall(packages.get(j), policies.get(j)), scope,
+                                                  policyStage("in", j, policies.get(j)))));
+            }
+
+            for (int j = i; j < end; j++) {
+                builder.append(format(this.startedInflowTemplate, "wait " + POLICY_FUTURE_PREFIX + j)).append('\n');
+            }
+
+            i = end;
+        }
+
         return builder.toString();
     }
 
+    /**
+     * Starts a policy call in a strand of its own. If the observability is on, the policy is timed and traced in that
+     * strand, as timing the wait for its result would include the time spent on the policies waited on before it.
+     */
+    private String startPolicy(String fnCall, String scope, String stage) {
+        if (!this.observability) {
+            return "start " + fnCall;
+        }
+
+        return format("start timeStage(%s, %s, function () returns any|error => %s)", addStageMetrics(scope, stage),
+                      toStringLiteral(stage), fnCall);
+    }
+
+    private static boolean isIndependentInFlowPolicy(PolicyPackage pkg) {
+        return pkg.getInFlowPolicy().map(PolicyFunction::isIndependent).orElse(false);
+    }
+
     public String generateOutflow(CodeContext ctx) {
-        Operation operation = this.operations.get(ctx.resourceMethodSignature());
+        return generateOutflow(this.operations.get(ctx.resourceMethodSignature()), ctx.resourceMethodSignature());
+    }
 
+    private String generateOutflow(Operation operation, String scope) {
         if (operation == null || operation.getOperationPolicies().getResponse().isEmpty()) {
             return null;
         }
 
         StringBuilder builder = new StringBuilder();
 
-        for (Policy policy : operation.getOperationPolicies().getResponse()) {
+        List<Policy> policies = operation.getOperationPolicies().getResponse();
+
+        for (int i = 0; i < policies.size(); i++) {
+            Policy policy = policies.get(i);
             PolicyPackage pkg = policyManager.get(policy.getPolicyName(), policy.getPolicyVersion());
-            builder.append(generateOutFlowPolicyInvocation(pkg)).append('\n');
+            builder.append(generateOutFlowPolicyInvocation(pkg, policy, scope, i)).append('\n');
             addToImports(pkg);
         }
 
@@ -177,75 +548,207 @@ public class CodeGenerator {
     }
 
     public String generateFaultFlow(CodeContext ctx) {
-        Operation operation = this.operations.get(ctx.resourceMethodSignature());
+        return generateFaultFlow(this.operations.get(ctx.resourceMethodSignature()), ctx.resourceMethodSignature());
+    }
 
+    private String generateFaultFlow(Operation operation, String scope) {
         if (operation == null || operation.getOperationPolicies().getFault().isEmpty()) {
             return null;
         }
 
         StringBuilder builder = new StringBuilder();
 
-        for (Policy policy : operation.getOperationPolicies().getFault()) {
+        List<Policy> policies = operation.getOperationPolicies().getFault();
+
+        for (int i = 0; i < policies.size(); i++) {
+            Policy policy = policies.get(i);
             PolicyPackage pkg = policyManager.get(policy.getPolicyName(), policy.getPolicyVersion());
-            builder.append(generateFaultFlowPolicyInvocation(pkg)).append('\n');
+            builder.append(generateFaultFlowPolicyInvocation(pkg, policy, scope, i)).append('\n');
             addToImports(pkg);
         }
 
         return builder.toString();
     }
 
+    /**
+     * Records the imports needed by the mediation code of the given resource, without generating the code itself.
+     */
+    public void addPolicyImports(CodeContext ctx) {
+        if (needsMediationContext(ctx)) {
+            addToImports(BUILTIN_POLICY_ORG, POLICY_VALIDATOR_PKG);
+        }
+
+        Operation operation = this.operations.get(ctx.resourceMethodSignature());
+
+        if (operation == null) {
+            return;
+        }
+
+        AttachedPolicies policies = operation.getOperationPolicies();
+        Stream.of(policies.getRequest(), policies.getResponse(), policies.getFault())
+                .flatMap(List::stream)
+                .map(policy -> PackageID.from(policy.getPolicyName(), policy.getPolicyVersion()))
+                .forEach(id -> addToImports(id.org(), id.name()));
+    }
+
+    /**
+     * The modules the generated code refers to, mapped to the prefixes they are imported with.
+     */
+    public Map<String, String> getImports() {
+        return Collections.unmodifiableMap(this.imports);
+    }
+
     public String generateImports() {
         StringBuilder builder = new StringBuilder();
+        this.imports.forEach((moduleName, prefix) -> builder.append(importDeclaration(moduleName, prefix)));
+        return builder.toString();
+    }
 
-        for (String imprt : this.imports) {
-            builder.append(String.format("import %s;\n", imprt));
+    static String importDeclaration(String moduleName, String prefix) {
+        if (moduleName.endsWith("/" + prefix) || moduleName.endsWith("." + prefix)) {
+            return format("import %s;\n", moduleName);
         }
 
-        return builder.toString();
+        return format("import %s as %s;\n", moduleName, prefix);
     }
 
     public String generateBackendHTTPCall(CodeContext ctx) {
-        return format("http:Response %s = check %s->execute(%s, %s, %s);", BACKEND_RESPONSE, BACKEND_ENDPOINT,
-                      MEDIATION_CONTEXT_HTTP_METHOD, MEDIATION_CONTEXT_RESOURCE_PATH, INCOMING_REQUEST);
+        Operation operation = this.operations.get(ctx.resourceMethodSignature());
+
+        if (needsMediationContext(ctx)) {
+            return generateBackendHTTPCall(operation, MEDIATION_CONTEXT_HTTP_METHOD, MEDIATION_CONTEXT_RESOURCE_PATH);
+        }
+
+        // Without a mediation context, the method and the path are passed as is
+        return generateBackendHTTPCall(operation, format("\"%s\"", ctx.resourceMethodName()),
+                                       generateResourcePath(ctx));
     }
 
-    private String generateInFlowPolicyInvocation(PolicyPackage pkg) {
+    private String generateBackendHTTPCall(Operation operation, String httpMethod, String resourcePath) {
+        if (operation == null || operation.getResponseCache() == null) {
+            return format("http:Response %s = check %s->execute(%s, %s, %s);", BACKEND_RESPONSE, BACKEND_ENDPOINT,
+                          httpMethod, resourcePath, INCOMING_REQUEST);
+        }
+
+        ResponseCacheConfig config = operation.getResponseCache();
+        String cacheName = addResponseCache(operation);
+        return format("http:Response %s = check executeWithCache(%s, %s, %sd, %s, %s, %s);", BACKEND_RESPONSE,
+                      cacheName, cacheName + "_KEY_HEADERS", config.getTtl().toPlainString(), httpMethod, resourcePath,
+                      INCOMING_REQUEST);
+    }
+
+    /**
+     * Records the response cache of an operation, along with the headers its cache keys are made of.
+     *
+     * @return The name of the cache
+     */
+    private String addResponseCache(Operation operation) {
+        ResponseCacheConfig config = operation.getResponseCache();
+        String verb = operation.getVerb() == null ? "" : operation.getVerb().toUpperCase(Locale.ROOT);
+
+        if (!verb.equals("GET") && !verb.equals("HEAD")) {
+            throw new MediationCodeGenException(format("Response caching is only supported for GET and HEAD "
+                                                               + "operations: %s %s", verb, operation.getTarget()));
+        }
+
+        if (config.getTtl() == null || config.getTtl().signum() <= 0 || config.getMaxEntries() <= 0) {
+            throw new MediationCodeGenException(format("Invalid response cache of %s %s: the TTL and the maximum "
+                                                               + "number of entries should be positive", verb,
+                                                       operation.getTarget()));
+        }
+
+        String cacheName = this.constants.add(
+                RESPONSE_CACHE_CONST_PREFIX, verb + ' ' + operation.getTarget(),
+                name -> format("final cache:Cache %s = new ({capacity: %d, evictionFactor: 0.2});", name,
+                               config.getMaxEntries()));
+        String keyHeaders = config.getKeyHeaders() == null ? "" : config.getKeyHeaders().stream()
+                .map(header -> toStringLiteral(header.toLowerCase(Locale.ROOT)))
+                .collect(Collectors.joining(", "));
+
+        this.constants.addDerived(cacheName + "_KEY_HEADERS",
+                                  format("final readonly & string[] %s_KEY_HEADERS = [%s];", cacheName, keyHeaders));
+        addToImports("ballerina", "cache");
+        addToImports("ballerina", "time");
+        this.responseCacheUsed = true;
+        return cacheName;
+    }
+
+    private String generateInFlowPolicyInvocation(PolicyPackage pkg, Policy policy, String scope, int index) {
         if (pkg.getInFlowPolicy().isEmpty()) {
             return "";
         }
-        FunctionSymbol func = pkg.getInFlowPolicy().get();
-        String fnCall = format("%s:%s(%s, %s)", pkg.name(), func.getName().get(), INCOMING_REQUEST,
-                               MEDIATION_CONTEXT_VAR);
-        return format(this.inflowTemplate, fnCall);
+        return formatFlow(this.inflowTemplate, generateInFlowPolicyCall(pkg, policy), scope,
+                          policyStage("in", index, policy));
+    }
+
+    private String generateInFlowPolicyCall(PolicyPackage pkg, Policy policy) {
+        PolicyFunction func = pkg.getInFlowPolicy().get();
+        return format("%s:%s(%s, %s%s)", pkg.prefix(), func.name(), INCOMING_REQUEST, MEDIATION_CONTEXT_VAR,
+                      PolicyArguments.generate(pkg, func, 2, policy, this.constants));
     }
 
-    private String generateOutFlowPolicyInvocation(PolicyPackage pkg) {
+    private String generateOutFlowPolicyInvocation(PolicyPackage pkg, Policy policy, String scope, int index) {
         if (pkg.getOutFlowPolicy().isEmpty()) {
             return "";
         }
-        FunctionSymbol func = pkg.getOutFlowPolicy().get();
-        String fnCall = format("%s:%s(%s, %s, %s)", pkg.name(), func.getName().get(), BACKEND_RESPONSE,
-                               INCOMING_REQUEST, MEDIATION_CONTEXT_VAR);
-        return format(this.outflowTemplate, fnCall);
+        PolicyFunction func = pkg.getOutFlowPolicy().get();
+        String fnCall = format("%s:%s(%s, %s, %s%s)", pkg.prefix(), func.name(), BACKEND_RESPONSE, INCOMING_REQUEST,
+                               MEDIATION_CONTEXT_VAR, PolicyArguments.generate(pkg, func, 3, policy, this.constants));
+        return formatFlow(this.outflowTemplate, fnCall, scope, policyStage("out", index, policy));
     }
 
-    private String generateFaultFlowPolicyInvocation(PolicyPackage pkg) {
+    private String generateFaultFlowPolicyInvocation(PolicyPackage pkg, Policy policy, String scope, int index) {
         if (pkg.getFaultFlowPolicy().isEmpty()) {
             return "";
         }
-        FunctionSymbol func = pkg.getFaultFlowPolicy().get();
-        String fnCall = format("%s:%s(%s, %s, %s, %s, %s)", pkg.name(), func.getName().get(), ERROR_FLOW_RESPONSE,
-                               ERROR, BACKEND_RESPONSE, INCOMING_REQUEST, MEDIATION_CONTEXT_VAR);
-        return format(this.faultflowTemplate, fnCall);
+        PolicyFunction func = pkg.getFaultFlowPolicy().get();
+        String fnCall = format("%s:%s(%s, %s, %s, %s, %s%s)", pkg.prefix(), func.name(), ERROR_FLOW_RESPONSE, ERROR,
+                               BACKEND_RESPONSE, INCOMING_REQUEST, MEDIATION_CONTEXT_VAR,
+                               PolicyArguments.generate(pkg, func, 5, policy, this.constants));
+        return formatFlow(this.faultflowTemplate, fnCall, scope, policyStage("fault", index, policy));
+    }
+
+    /**
+     * Formats a flow template with a policy call. The instrumented templates also take the stage of the policy, and
+     * its metrics.
+     */
+    private String formatFlow(String template, String fnCall, String scope, String stage) {
+        if (!this.observability) {
+            return format(template, fnCall);
+        }
+        return format(template, fnCall, toStringLiteral(stage), addStageMetrics(scope, stage));
+    }
+
+    private static String policyStage(String flow, int index, Policy policy) {
+        return format("%s[%d] %s:%s", flow, index, policy.getPolicyName(), policy.getPolicyVersion());
     }
 
     private void addToImports(PolicyPackage pkg) {
-        String pkgName = pkg.org() + "/" + pkg.name(); // TODO: 2022-06-07 Need to consider quoted identifiers
-        this.imports.add(pkgName);
+        addToImports(pkg.org(), pkg.name(), pkg.prefix()); // TODO: 2022-06-07 Need to consider quoted identifiers
     }
 
     private void addToImports(String org, String name) {
-        String pkgName = org + "/" + name;
-        this.imports.add(pkgName);
+        addToImports(org, name, PolicyPackage.prefixOf(name));
+    }
+
+    private void addToImports(String org, String name, String prefix) {
+        this.imports.put(org + "/" + name, prefix);
+    }
+
+    /**
+     * The functions the response caches are used through, which are only read when a service has a response cache.
+     */
+    private static final class ResponseCacheSnippet {
+
+        private static final String CODE = readResource("code-snippets/response_cache.bal");
+    }
+
+    /**
+     * The functions the instrumentation of the mediation is done through, which are only read when observability is
+     * on.
+     */
+    private static final class ObservabilitySnippet {
+
+        private static final String CODE = readResource("code-snippets/observability.bal");
     }
 }
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serializes the compilation of a policy package into a compilation cache directory, within the process as well as
+ * across the generator processes sharing the directory. Each package is locked separately, so that different packages
+ * are compiled in parallel. Compiling a package writes the BIR of its dependencies (e.g., {@code ballerina/http}) to
+ * the cache as well, but the BIR of a given dependency version is the same whichever package it is compiled for.
+ */
+final class CompilationCacheLock {
+
+    private static final String LOCK_FILE = ".proxygen.lock";
+    // A file lock is held by the whole JVM, so the threads of the process are serialized with a lock of their own
+    private static final Map<Path, ReentrantLock> PROCESS_LOCKS = new ConcurrentHashMap<>();
+
+    private final Path lockFile;
+    private final ReentrantLock processLock;
+
+    CompilationCacheLock(Path cacheDir, PackageID id) {
+        Path dir = cacheDir.toAbsolutePath().normalize().resolve(id.org()).resolve(id.name()).resolve(id.version());
+        this.lockFile = dir.resolve(LOCK_FILE);
+        this.processLock = PROCESS_LOCKS.computeIfAbsent(dir, key -> new ReentrantLock());
+    }
+
+    <T> T withLock(Supplier<T> action) {
+        this.processLock.lock();
+
+        try {
+            Files.createDirectories(this.lockFile.getParent());
+
+            try (FileChannel channel = FileChannel.open(this.lockFile, StandardOpenOption.CREATE,
+                                                        StandardOpenOption.WRITE);
+                 FileLock lock = channel.lock()) {
+                return action.get();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to lock the compilation cache: " + this.lockFile, e);
+        } finally {
+            this.processLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import dev.choreo.apim.artifact.model.APIData;
+import dev.choreo.apim.artifact.model.AttachedPolicies;
+import dev.choreo.apim.artifact.model.Operation;
+import dev.choreo.apim.artifact.model.Policy;
+import dev.choreo.apim.artifact.model.ResponseCacheConfig;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+
+import static dev.choreo.apim.utils.Utils.newSha256Digest;
+import static dev.choreo.apim.utils.Utils.toHex;
+
+/**
+ * Fingerprints of the inputs a generated project was derived from. The artifact fingerprint covers the inputs which
+ * affect the whole service (i.e., the OpenAPI definition, the endpoint config and the generation options) while the
+ * operation fingerprints cover the policy chains attached to each operation, along with its response cache settings
+ * and whether it is flagged as streaming (which does not change the code generated, but has to be validated again).
+ * These are persisted in the generated project so that a later run can figure out which resources need to be
+ * regenerated.
+ */
+public class GenerationFingerprint {
+
+    static final String FILE_NAME = "proxy-fingerprints.json";
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private final String artifact;
+    private final Map<String, String> operations;
+
+    private GenerationFingerprint(String artifact, Map<String, String> operations) {
+        this.artifact = artifact;
+        this.operations = operations;
+    }
+
+    public static GenerationFingerprint from(byte[] openapiDef, APIData apiData, Map<String, Operation> operations) {
+        return from(openapiDef, apiData, operations, Collections.emptySortedSet());
+    }
+
+    /**
+     * @param options The generation options which change the shape of the whole service (e.g., shared mediation
+     *                functions). Switching any of these on or off requires a full regeneration.
+     */
+    public static GenerationFingerprint from(byte[] openapiDef, APIData apiData, Map<String, Operation> operations,
+                                             SortedSet<String> options) {
+        MessageDigest digest = newSha256Digest();
+        digest.update(openapiDef);
+        digest.update(GSON.toJson(apiData.getEndpointConfig()).getBytes(StandardCharsets.UTF_8));
+        for (String option : options) {
+            digest.update(("\n" + option).getBytes(StandardCharsets.UTF_8));
+        }
+        String artifactFingerprint = toHex(digest.digest());
+
+        Map<String, String> opFingerprints = new TreeMap<>();
+        operations.forEach((key, op) -> {
+            String streaming = op.isStreaming() ? "streaming\n" : "";
+            opFingerprints.put(key, hash(key + '\n' + chainFingerprint(op) + streaming));
+        });
+        return new GenerationFingerprint(artifactFingerprint, opFingerprints);
+    }
+
+    public static Optional<GenerationFingerprint> read(Path projectPath) throws IOException {
+        Path file = projectPath.resolve(FILE_NAME);
+
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return Optional.ofNullable(GSON.fromJson(reader, GenerationFingerprint.class));
+        }
+    }
+
+    public void write(Path projectPath) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(projectPath.resolve(FILE_NAME), StandardCharsets.UTF_8)) {
+            GSON.toJson(this, writer);
+        }
+    }
+
+    /**
+     * Checks whether a project generated with the given fingerprint can be brought up to date by only regenerating
+     * the affected resources.
+     */
+    public boolean isIncrementallyUpdatable(GenerationFingerprint previous) {
+        return previous != null && this.artifact.equals(previous.artifact) && previous.operations != null;
+    }
+
+    /**
+     * Returns the keys of the operations which were added, removed or whose policy chain changed since the given
+     * fingerprint was taken.
+     */
+    public Set<String> changedOperations(GenerationFingerprint previous) {
+        Set<String> changed = new HashSet<>();
+        this.operations.forEach((key, fingerprint) -> {
+            if (!fingerprint.equals(previous.operations.get(key))) {
+                changed.add(key);
+            }
+        });
+        previous.operations.keySet().stream()
+                .filter(key -> !this.operations.containsKey(key))
+                .forEach(changed::add);
+        return changed;
+    }
+
+    /**
+     * Builds a canonical representation of the ordered request, response and fault policy chains of an operation.
+     */
+    public static String chainFingerprint(Operation operation) {
+        AttachedPolicies policies = operation.getOperationPolicies();
+        StringBuilder builder = new StringBuilder();
+        appendPolicies(builder, "request", policies.getRequest());
+        appendPolicies(builder, "response", policies.getResponse());
+        appendPolicies(builder, "fault", policies.getFault());
+        ResponseCacheConfig cache = operation.getResponseCache();
+        if (cache != null) {
+            builder.append("cache:").append(cache.getTtl()).append(',').append(cache.getMaxEntries()).append(',')
+                    .append(cache.getKeyHeaders()).append('\n');
+        }
+        return builder.toString();
+    }
+
+    private static void appendPolicies(StringBuilder builder, String flow, List<Policy> policies) {
+        builder.append(flow).append(':');
+        for (Policy policy : policies) {
+            builder.append(policy.getPolicyName()).append('@').append(policy.getPolicyVersion());
+            if (policy.getParameters() != null) {
+                builder.append(new TreeMap<>(policy.getParameters()));
+            }
+            builder.append(';');
+        }
+        builder.append('\n');
+    }
+
+    private static String hash(String content) {
+        return toHex(newSha256Digest().digest(content.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+public class GenerationResult {
+
+    private final Path artifactPath;
+    private final Path projectPath;
+    private final Throwable error;
+    private final long elapsedMillis;
+
+    private GenerationResult(Path artifactPath, Path projectPath, Throwable error, long elapsedMillis) {
+        this.artifactPath = artifactPath;
+        this.projectPath = projectPath;
+        this.error = error;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public static GenerationResult success(Path artifactPath, Path projectPath, long elapsedMillis) {
+        return new GenerationResult(artifactPath, projectPath, null, elapsedMillis);
+    }
+
+    public static GenerationResult failure(Path artifactPath, Throwable error, long elapsedMillis) {
+        return new GenerationResult(artifactPath, null, error, elapsedMillis);
+    }
+
+    public Path artifactPath() {
+        return artifactPath;
+    }
+
+    public Optional<Path> projectPath() {
+        return Optional.ofNullable(projectPath);
+    }
+
+    public Optional<Throwable> error() {
+        return Optional.ofNullable(error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    public long elapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        if (isSuccess()) {
+            return String.format("[OK]     %s -> %s (%d ms)", artifactPath, projectPath, elapsedMillis);
+        }
+        return String.format("[FAILED] %s: %s (%d ms)", artifactPath, error, elapsedMillis);
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim;
+
+import io.ballerina.compiler.syntax.tree.FunctionBodyBlockNode;
+import io.ballerina.compiler.syntax.tree.FunctionDefinitionNode;
+import io.ballerina.compiler.syntax.tree.IdentifierToken;
+import io.ballerina.compiler.syntax.tree.ImportDeclarationNode;
+import io.ballerina.compiler.syntax.tree.ModuleMemberDeclarationNode;
+import io.ballerina.compiler.syntax.tree.ModulePartNode;
+import io.ballerina.compiler.syntax.tree.Node;
+import io.ballerina.compiler.syntax.tree.NodeVisitor;
+import io.ballerina.compiler.syntax.tree.QualifiedNameReferenceNode;
+import io.ballerina.compiler.syntax.tree.ServiceDeclarationNode;
+import io.ballerina.compiler.syntax.tree.SyntaxKind;
+import io.ballerina.compiler.syntax.tree.SyntaxTree;
+import io.ballerina.tools.text.LineRange;
+import io.ballerina.tools.text.TextDocument;
+import io.ballerina.tools.text.TextDocumentChange;
+import io.ballerina.tools.text.TextEdit;
+import io.ballerina.tools.text.TextLine;
+import io.ballerina.tools.text.TextRange;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Brings a previously generated service up to date by regenerating only the bodies of the resources whose operations
+ * changed. The rest of the service is left as is, apart from the imports of the generated code (i.e., the policies and
+ * the standard library modules of the mediation), which are reconciled with what the service now uses, and the
+ * generated module members (e.g., the constants of the policy arguments), which are regenerated as a whole.
+ */
+public class IncrementalTransformer extends NodeVisitor {
+
+    private static final TextRange START_POS = TextRange.from(0, 0);
+    private static final Set<String> STDLIB_ORGS = Set.of("ballerina", "ballerinax");
+    private final Set<String> changedOps;
+    private CodeGenerator codegen;
+    private TextDocument textDocument;
+    private List<TextEdit> edits;
+    private CodeContext ctx;
+
+    public IncrementalTransformer(Set<String> changedOps) {
+        this.changedOps = changedOps;
+    }
+
+    public TextDocumentChange modifyDoc(SyntaxTree syntaxTree, CodeGenerator codegen) {
+        this.edits = new ArrayList<>();
+        this.codegen = codegen;
+        this.textDocument = syntaxTree.textDocument();
+        visitNode(syntaxTree.rootNode());
+        return TextDocumentChange.from(this.edits.toArray(new TextEdit[0]));
+    }
+
+    private void visitNode(Node node) {
+        CodeContext prevCtx = this.ctx;
+        this.ctx = new CodeContext(prevCtx, node);
+        node.accept(this);
+        this.ctx = prevCtx;
+    }
+
+    @Override
+    public void visit(ModulePartNode modulePartNode) {
+        for (ModuleMemberDeclarationNode member : modulePartNode.members()) {
+            if (member.kind() == SyntaxKind.SERVICE_DECLARATION) {
+                visitNode(member);
+            }
+        }
+
+        this.edits.add(regenerateModuleMembers(modulePartNode));
+
+        // The import edits precede all the other edits in the document
+        this.edits.addAll(0, reconcileImports(modulePartNode));
+    }
+
+    @Override
+    public void visit(ServiceDeclarationNode serviceDeclarationNode) {
+        for (Node member : serviceDeclarationNode.members()) {
+            if (member.kind() == SyntaxKind.RESOURCE_ACCESSOR_DEFINITION) {
+                visitNode(member);
+            }
+        }
+    }
+
+    @Override
+    public void visit(FunctionDefinitionNode functionDefinitionNode) {
+        // Signatures were already modified when the service was first generated
+        visitNode(functionDefinitionNode.functionBody());
+    }
+
+    @Override
+    public void visit(FunctionBodyBlockNode funcBody) {
+        this.codegen.addPolicyImports(this.ctx);
+
+        if (!this.changedOps.contains(this.ctx.resourceMethodSignature())) {
+            // Keeps the module members the unchanged resource refers to
+            this.codegen.addModuleMembers(this.ctx);
+            return;
+        }
+
+        LineRange closingBraceLR = funcBody.closeBraceToken().lineRange();
+        TextRange closingBraceTR = funcBody.closeBraceToken().textRange();
+        int bodyStart = funcBody.openBraceToken().textRange().endOffset();
+        int bodyEnd = closingBraceTR.startOffset() - closingBraceLR.startLine().offset();
+        int nTabs = closingBraceLR.startLine().offset() / 4 + 1;
+
+        String code = '\n' + this.codegen.generateMediationContextRecord(this.ctx)
+                + this.codegen.generateMediation(this.ctx, nTabs);
+        this.edits.add(TextEdit.from(TextRange.from(bodyStart, bodyEnd - bodyStart), code));
+    }
+
+    /**
+     * Replaces the section of the generated module members with the members the resources now refer to. The section is
+     * added at the end of the document if the service did not have one.
+     */
+    private TextEdit regenerateModuleMembers(ModulePartNode modulePartNode) {
+        String content = this.textDocument.toString();
+        int begin = content.indexOf(CodeGenerator.GENERATED_MEMBERS_BEGIN);
+        int end = content.indexOf(CodeGenerator.GENERATED_MEMBERS_END);
+        String members = this.codegen.generateModuleMembers();
+
+        if (!hasGeneratedMembers(begin, end)) {
+            return TextEdit.from(TextRange.from(modulePartNode.textRange().endOffset(), 0), members);
+        }
+
+        // The leading newline of the section is part of the generated members
+        if (begin > 0 && content.charAt(begin - 1) == '\n') {
+            begin--;
+        }
+
+        end += CodeGenerator.GENERATED_MEMBERS_END.length();
+        if (end < content.length() && content.charAt(end) == '\n') {
+            end++;
+        }
+
+        return TextEdit.from(TextRange.from(begin, end - begin), members);
+    }
+
+    private List<TextEdit> reconcileImports(ModulePartNode modulePartNode) {
+        List<TextEdit> importEdits = new ArrayList<>();
+        Map<String, String> required = this.codegen.getImports();
+        Set<String> existing = new HashSet<>();
+        Set<String> referencedPrefixes = null;
+
+        for (ImportDeclarationNode importDecl : modulePartNode.imports()) {
+            if (importDecl.orgName().isEmpty()) {
+                continue;
+            }
+
+            String org = importDecl.orgName().get().orgName().text();
+            StringJoiner moduleName = new StringJoiner(".");
+            for (IdentifierToken namePart : importDecl.moduleName()) {
+                moduleName.add(namePart.text());
+            }
+
+            String importName = org + "/" + moduleName;
+            existing.add(importName);
+
+            if (required.containsKey(importName)) {
+                continue;
+            }
+
+            // Unused imports are compilation errors, so imports of policies which are no longer used are removed, as
+            // are the standard library imports of the mediation unless the rest of the service refers to them
+            boolean unused = !STDLIB_ORGS.contains(org);
+            if (!unused && CodeGenerator.MEDIATION_STDLIB_IMPORTS.contains(importName)) {
+                if (referencedPrefixes == null) {
+                    referencedPrefixes = getReferencedPrefixes(modulePartNode);
+                }
+                String prefix = importDecl.prefix().map(p -> p.prefix().text())
+                        .orElse(importDecl.moduleName().get(importDecl.moduleName().size() - 1).text());
+                unused = !referencedPrefixes.contains(prefix);
+            }
+
+            if (unused) {
+                TextLine line = this.textDocument.line(importDecl.lineRange().startLine().line());
+                importEdits.add(TextEdit.from(
+                        TextRange.from(line.startOffset(), line.endOffsetWithNewline() - line.startOffset()), ""));
+            }
+        }
+
+        StringBuilder newImports = new StringBuilder();
+        required.forEach((importName, prefix) -> {
+            if (!existing.contains(importName)) {
+                newImports.append(CodeGenerator.importDeclaration(importName, prefix));
+            }
+        });
+
+        if (newImports.length() > 0) {
+            importEdits.add(0, TextEdit.from(START_POS, newImports.toString()));
+        }
+
+        return importEdits;
+    }
+
+    /**
+     * Collects the module prefixes the code which is not regenerated refers to, i.e., everything but the bodies of the
+     * resources and the generated module members.
+     */
+    private Set<String> getReferencedPrefixes(ModulePartNode modulePartNode) {
+        String content = this.textDocument.toString();
+        int begin = content.indexOf(CodeGenerator.GENERATED_MEMBERS_BEGIN);
+        int end = content.indexOf(CodeGenerator.GENERATED_MEMBERS_END);
+        ModulePrefixCollector collector = new ModulePrefixCollector();
+
+        for (ModuleMemberDeclarationNode member : modulePartNode.members()) {
+            int offset = member.textRange().startOffset();
+
+            if (!hasGeneratedMembers(begin, end) || offset < begin || offset > end) {
+                member.accept(collector);
+            }
+        }
+
+        return collector.prefixes;
+    }
+
+    private static boolean hasGeneratedMembers(int begin, int end) {
+        return begin >= 0 && end >= begin;
+    }
+
+    private static class ModulePrefixCollector extends NodeVisitor {
+
+        private final Set<String> prefixes = new HashSet<>();
+
+        @Override
+        public void visit(FunctionDefinitionNode functionDefinitionNode) {
+            if (functionDefinitionNode.kind() != SyntaxKind.RESOURCE_ACCESSOR_DEFINITION) {
+                visitSyntaxNode(functionDefinitionNode);
+                return;
+            }
+
+            // The bodies of the resources are generated
+            functionDefinitionNode.metadata().ifPresent(metadata -> metadata.accept(this));
+            functionDefinitionNode.functionSignature().accept(this);
+        }
+
+        @Override
+        public void visit(QualifiedNameReferenceNode qualifiedNameReferenceNode) {
+            this.prefixes.add(qualifiedNameReferenceNode.modulePrefix().text());
+        }
+    }
+}
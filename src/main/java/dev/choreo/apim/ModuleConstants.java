@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import static dev.choreo.apim.utils.Utils.newSha256Digest;
+import static dev.choreo.apim.utils.Utils.toHex;
+
+/**
+ * The module-level constants of the generated code, by name. A constant is named after a prefix and a hash of what it
+ * stands for (its key), so that the same thing gets the same name across the resources and across regenerations. The
+ * name is lengthened in the unlikely case of a collision with the constant of another key.
+ */
+final class ModuleConstants {
+
+    private static final int MIN_HASH_LENGTH = 8;
+
+    private final Map<String, String> declarations = new TreeMap<>();
+    private final Map<String, String> keys = new HashMap<>();
+
+    /**
+     * Adds the constant of the given key, unless it was already added.
+     *
+     * @param declaration Generates the declaration of the constant, given its name
+     * @return The name of the constant
+     */
+    String add(String prefix, String key, Function<String, String> declaration) {
+        String hash = toHex(newSha256Digest().digest(key.getBytes(StandardCharsets.UTF_8))).toUpperCase();
+        int length = MIN_HASH_LENGTH;
+        String name = prefix + hash.substring(0, length);
+
+        while (this.keys.containsKey(name) && !this.keys.get(name).equals(key)) {
+            name = prefix + hash.substring(0, ++length);
+        }
+
+        if (!this.keys.containsKey(name)) {
+            this.keys.put(name, key);
+            this.declarations.put(name, declaration.apply(name));
+        }
+
+        return name;
+    }
+
+    /**
+     * Adds a constant which is named after another (e.g., {@code <name>_KEY_HEADERS}), which makes its name unique.
+     */
+    void addDerived(String name, String declaration) {
+        this.declarations.putIfAbsent(name, declaration);
+    }
+
+    boolean isEmpty() {
+        return this.declarations.isEmpty();
+    }
+
+    Collection<String> declarations() {
+        return this.declarations.values();
+    }
+}
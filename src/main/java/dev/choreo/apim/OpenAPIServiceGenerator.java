@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim;
+
+import dev.choreo.apim.utils.MediationCodeGenException;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+
+import static dev.choreo.apim.utils.Utils.escapeIdentifier;
+
+/**
+ * Generates the service stub for an OpenAPI definition. Only the parts of the service the mediation code is
+ * generated on top of are generated: the listener, the service base path and a resource per operation. The resource
+ * signatures and bodies are then filled in by the {@link SyntaxTreeTransformer}, so the request params and payload
+ * types are not generated.
+ */
+class OpenAPIServiceGenerator {
+
+    private static final Set<String> HTTP_METHODS = Set.of("get", "put", "post", "delete", "options", "head",
+                                                           "patch", "trace");
+
+    private final Map<String, Object> openapiDef;
+
+    OpenAPIServiceGenerator(Map<String, Object> openapiDef) {
+        if (openapiDef == null || openapiDef.get("paths") == null) {
+            throw new MediationCodeGenException("Invalid OpenAPI definition: no paths found");
+        }
+        this.openapiDef = openapiDef;
+    }
+
+    String generate() {
+        StringJoiner resources = new StringJoiner("\n");
+
+        for (Map.Entry<String, Object> path : asMap(this.openapiDef.get("paths")).entrySet()) {
+            Object pathItem = path.getValue();
+            if (!(pathItem instanceof Map)) {
+                continue;
+            }
+
+            String resourcePath = toRelativeResourcePath(path.getKey());
+            for (Object method : ((Map<?, ?>) pathItem).keySet()) {
+                String httpMethod = String.valueOf(method).toLowerCase();
+                if (!HTTP_METHODS.contains(httpMethod)) {
+                    continue;
+                }
+
+                resources.add(String.format("    resource function %s %s() returns error? {\n    }\n",
+                                            httpMethod, resourcePath));
+            }
+        }
+
+        return "import ballerina/http;\n\n" +
+                "listener http:Listener ep0 = new (9090);\n\n" +
+                "service " + toResourcePath(getBasePath()) + " on ep0 {\n" + resources + "}\n";
+    }
+
+    private String getBasePath() {
+        // Swagger 2.0
+        if (this.openapiDef.get("basePath") instanceof String) {
+            return (String) this.openapiDef.get("basePath");
+        }
+
+        Object servers = this.openapiDef.get("servers");
+        if (!(servers instanceof List) || ((List<?>) servers).isEmpty()) {
+            return "/";
+        }
+
+        Map<String, Object> server = asMap(((List<?>) servers).get(0));
+        String url = String.valueOf(server.get("url"));
+
+        // Server variables are substituted with their default values
+        if (server.get("variables") instanceof Map) {
+            for (Map.Entry<String, Object> variable : asMap(server.get("variables")).entrySet()) {
+                Object defaultVal = asMap(variable.getValue()).get("default");
+                url = url.replace("{" + variable.getKey() + "}", defaultVal == null ? "" : defaultVal.toString());
+            }
+        }
+
+        try {
+            String path = new URI(url).getPath();
+            return path == null || path.isEmpty() ? "/" : path;
+        } catch (URISyntaxException e) {
+            throw new MediationCodeGenException("Invalid server URL in the OpenAPI definition: " + url);
+        }
+    }
+
+    private static String toResourcePath(String path) {
+        StringBuilder builder = new StringBuilder();
+
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                builder.append('/').append(escapeIdentifier(segment));
+            }
+        }
+
+        return builder.length() == 0 ? "/" : builder.toString();
+    }
+
+    private static String toRelativeResourcePath(String path) {
+        StringBuilder builder = new StringBuilder();
+
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+
+            if (builder.length() > 0) {
+                builder.append('/');
+            }
+
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                builder.append("[string ").append(escapeIdentifier(segment.substring(1, segment.length() - 1)))
+                        .append(']');
+            } else {
+                builder.append(escapeIdentifier(segment));
+            }
+        }
+
+        return builder.length() == 0 ? "." : builder.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object obj) {
+        if (!(obj instanceof Map)) {
+            throw new MediationCodeGenException("Invalid OpenAPI definition: expected a mapping, found " + obj);
+        }
+        return (Map<String, Object>) obj;
+    }
+}
@@ -18,7 +18,15 @@
 
 package dev.choreo.apim;
 
+import dev.choreo.apim.artifact.model.AttachedPolicies;
+import dev.choreo.apim.artifact.model.Operation;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public class PackageID {
 
@@ -42,6 +50,23 @@ public class PackageID {
         return new PackageID(split[0], split[1], version);
     }
 
+    /**
+     * Collects the distinct policy packages referenced in the request, response and fault flows of the given
+     * operations, in the order they are first referenced.
+     */
+    public static Set<PackageID> referencedBy(Collection<Operation> operations) {
+        Set<PackageID> ids = new LinkedHashSet<>();
+
+        for (Operation op : operations) {
+            AttachedPolicies policies = op.getOperationPolicies();
+            Stream.of(policies.getRequest(), policies.getResponse(), policies.getFault())
+                    .flatMap(List::stream)
+                    .forEach(policy -> ids.add(from(policy.getPolicyName(), policy.getPolicyVersion())));
+        }
+
+        return ids;
+    }
+
     public String org() {
         return this.org;
     }
@@ -72,4 +97,9 @@ public class PackageID {
     public int hashCode() {
         return Objects.hash(org, name, version);
     }
+
+    @Override
+    public String toString() {
+        return String.format("%s/%s:%s", org, name, version);
+    }
 }
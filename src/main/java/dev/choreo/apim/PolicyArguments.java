@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim;
+
+import dev.choreo.apim.artifact.model.Policy;
+import dev.choreo.apim.utils.MediationCodeGenException;
+import io.ballerina.compiler.api.symbols.ParameterKind;
+import io.ballerina.compiler.api.symbols.TypeDescKind;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static dev.choreo.apim.utils.Utils.escapeIdentifier;
+import static dev.choreo.apim.utils.Utils.toStringLiteral;
+import static java.lang.String.format;
+
+/**
+ * Binds the parameters of a policy, as given in the API metadata, to the parameters of its policy function. Each
+ * argument is generated as a module-level constant, which is passed to the policy function as a named argument, so
+ * that the policies don't have to look up and parse their configuration per request.
+ */
+final class PolicyArguments {
+
+    private static final Set<TypeDescKind> CONST_KINDS = EnumSet.of(
+            TypeDescKind.STRING, TypeDescKind.INT, TypeDescKind.FLOAT, TypeDescKind.DECIMAL, TypeDescKind.BOOLEAN);
+    // e.g., choreo/ratelimit:1.0.0:Config
+    private static final Pattern QUALIFIED_TYPE = Pattern.compile("([\\w.]+)/([\\w.]+):[\\w.\\-]+:(\\w+)");
+
+    private PolicyArguments() {
+    }
+
+    /**
+     * Generates the named arguments of a policy function call.
+     *
+     * @param nFixedParams The no. of leading parameters of the policy function which the mediation passes (e.g., the
+     *                     request and the mediation context)
+     * @param constants    Collects the declarations of the constants the arguments refer to
+     * @return The named arguments, each preceded by a comma (e.g., {@code , 'limit = RATELIMIT_LIMIT_3F2A1B9C})
+     */
+    static String generate(PolicyPackage pkg, PolicyFunction fn, int nFixedParams, Policy policy,
+                           ModuleConstants constants) {
+        Map<String, Object> values = policy.getParameters() != null ? policy.getParameters() : Collections.emptyMap();
+        List<PolicyFunction.Parameter> fnParams = fn.params();
+        Map<String, PolicyFunction.Parameter> params = new LinkedHashMap<>();
+
+        for (PolicyFunction.Parameter param : fnParams.subList(Math.min(nFixedParams, fnParams.size()),
+                                                               fnParams.size())) {
+            if (param.kind() == ParameterKind.REQUIRED || param.kind() == ParameterKind.DEFAULTABLE) {
+                params.put(param.name(), param);
+            }
+        }
+
+        for (String name : values.keySet()) {
+            if (!params.containsKey(name)) {
+                throw new MediationCodeGenException(format("Unknown parameter '%s' of policy %s:%s", name,
+                                                           policy.getPolicyName(), policy.getPolicyVersion()));
+            }
+        }
+
+        StringBuilder args = new StringBuilder();
+
+        for (PolicyFunction.Parameter param : params.values()) {
+            if (!values.containsKey(param.name())) {
+                if (param.isDefaultable()) {
+                    continue;
+                }
+                throw new MediationCodeGenException(format("Missing required parameter '%s' of policy %s:%s",
+                                                           param.name(), policy.getPolicyName(),
+                                                           policy.getPolicyVersion()));
+            }
+
+            Object value = values.get(param.name());
+            checkType(param, value, policy);
+            String literal = toLiteral(value, param.typeKind(), policy);
+            String type = toSourceType(param.signature(), pkg, policy);
+            boolean isConst = CONST_KINDS.contains(param.typeKind()) && type.equals(param.signature());
+            String constName = constants.add(
+                    constantPrefix(pkg, param),
+                    pkg.org() + '/' + pkg.name() + '\n' + param.name() + '\n' + type + '=' + literal,
+                    name -> isConst ? format("const %s %s = %s;", type, name, literal)
+                            : format("final readonly & %s %s = %s;", type, name, literal));
+            args.append(", ").append(escapeIdentifier(param.name())).append(" = ").append(constName);
+        }
+
+        return args.toString();
+    }
+
+    private static void checkType(PolicyFunction.Parameter param, Object value, Policy policy) {
+        boolean valid;
+
+        switch (param.typeKind()) {
+            case STRING:
+                valid = value instanceof String;
+                break;
+            case INT:
+            case BYTE:
+                valid = value instanceof Integer || value instanceof Long || value instanceof BigInteger;
+                break;
+            case FLOAT:
+            case DECIMAL:
+                valid = value instanceof Number;
+                break;
+            case BOOLEAN:
+                valid = value instanceof Boolean;
+                break;
+            case MAP:
+            case RECORD:
+                valid = value instanceof Map;
+                break;
+            case ARRAY:
+            case TUPLE:
+                valid = value instanceof List;
+                break;
+            case NIL:
+                valid = value == null;
+                break;
+            default:
+                // The other types (e.g., unions, json and anydata) are left to the compiler to check, against the
+                // type of the constant
+                valid = true;
+        }
+
+        if (!valid) {
+            throw new MediationCodeGenException(format("Invalid value for the parameter '%s' of policy %s:%s: "
+                                                               + "expected a value of type '%s', found '%s'",
+                                                       param.name(), policy.getPolicyName(),
+                                                       policy.getPolicyVersion(), param.signature(), value));
+        }
+    }
+
+    private static String toLiteral(Object value, TypeDescKind kind, Policy policy) {
+        if (value == null) {
+            return "()";
+        }
+
+        if (value instanceof String) {
+            return toStringLiteral((String) value);
+        }
+
+        if (value instanceof Boolean || value instanceof Integer || value instanceof Long
+                || value instanceof BigInteger) {
+            return value.toString();
+        }
+
+        if (value instanceof Number) {
+            double number = ((Number) value).doubleValue();
+
+            if (Double.isNaN(number) || Double.isInfinite(number)) {
+                throw new MediationCodeGenException(format("Unsupported parameter value in policy %s:%s: %s",
+                                                           policy.getPolicyName(), policy.getPolicyVersion(), value));
+            }
+
+            String literal = new BigDecimal(value.toString()).toPlainString();
+            return kind == TypeDescKind.DECIMAL || literal.contains(".") ? literal : literal + ".0";
+        }
+
+        if (value instanceof Map) {
+            StringJoiner fields = new StringJoiner(", ", "{", "}");
+            ((Map<?, ?>) value).forEach((key, fieldValue) -> fields.add(
+                    toStringLiteral(String.valueOf(key)) + ": " + toLiteral(fieldValue, TypeDescKind.ANYDATA, policy)));
+            return fields.toString();
+        }
+
+        if (value instanceof List) {
+            StringJoiner members = new StringJoiner(", ", "[", "]");
+            ((List<?>) value).forEach(member -> members.add(toLiteral(member, TypeDescKind.ANYDATA, policy)));
+            return members.toString();
+        }
+
+        throw new MediationCodeGenException(format("Unsupported parameter value in policy %s:%s: %s",
+                                                   policy.getPolicyName(), policy.getPolicyVersion(), value));
+    }
+
+    /**
+     * Converts the signature of a parameter type to the type as it can be written in the generated service. Types
+     * defined in the policy package are qualified with the prefix of the policy import. Types of other modules are not
+     * imported by the service, so they are not supported.
+     */
+    private static String toSourceType(String signature, PolicyPackage pkg, Policy policy) {
+        Matcher matcher = QUALIFIED_TYPE.matcher(signature);
+        StringBuffer type = new StringBuffer();
+
+        while (matcher.find()) {
+            if (!pkg.org().equals(matcher.group(1)) || !pkg.name().equals(matcher.group(2))) {
+                throw new MediationCodeGenException(format("Unsupported parameter type in policy %s:%s: %s",
+                                                           policy.getPolicyName(), policy.getPolicyVersion(),
+                                                           signature));
+            }
+            matcher.appendReplacement(type, Matcher.quoteReplacement(pkg.prefix() + ":" + matcher.group(3)));
+        }
+
+        return matcher.appendTail(type).toString();
+    }
+
+    /**
+     * Names the constant of an argument after the policy and the parameter. The constant is keyed by the value as well,
+     * so that the same argument gets the same constant across the operations and across regenerations.
+     */
+    private static String constantPrefix(PolicyPackage pkg, PolicyFunction.Parameter param) {
+        return (pkg.name() + '_' + param.name()).toUpperCase().replaceAll("[^A-Z0-9_]", "_") + '_';
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim;
+
+import dev.choreo.apim.artifact.ApiArtifact;
+import dev.choreo.apim.artifact.model.Operation;
+import dev.choreo.apim.repos.PolicyBundleWriter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Builds a policy bundle with the policies referenced by a set of API artifacts. The policies missing in the local
+ * bala cache are pulled first. The descriptors of the policies are included in the bundle, so that generating with
+ * the bundle does not need to compile any policy package.
+ */
+public class PolicyBundleBuilder {
+
+    private final PolicyPackageLoader policyLoader;
+
+    public PolicyBundleBuilder(PolicyPackageLoader policyLoader) {
+        this.policyLoader = policyLoader;
+    }
+
+    /**
+     * Usage: {@code PolicyBundleBuilder <bal home> <bundle file> <artifact>...}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            throw new IllegalArgumentException("Usage: PolicyBundleBuilder <bal home> <bundle file> <artifact>...");
+        }
+
+        System.setProperty("ballerina.home", args[0]);
+        // Always built from the bala cache, even if a bundle is configured for generation
+        PolicyPackageLoader policyLoader = new PolicyPackageLoader(
+                Paths.get(args[0]), Paths.get(System.getProperty("user.home"), ".ballerina"),
+                PolicyPackageLoader.defaultRepository());
+        List<Path> artifacts = new ArrayList<>();
+
+        for (int i = 2; i < args.length; i++) {
+            artifacts.add(Paths.get(args[i]));
+        }
+
+        Set<PackageID> ids = new PolicyBundleBuilder(policyLoader).build(artifacts, Paths.get(args[1]));
+        System.out.printf("Bundled %d policy packages to %s%n", ids.size(), args[1]);
+        ids.forEach(id -> System.out.println("  " + id));
+    }
+
+    public Set<PackageID> build(List<Path> artifacts, Path bundlePath) throws IOException {
+        List<Operation> ops = new ArrayList<>();
+
+        for (Path artifactPath : artifacts) {
+            try (ApiArtifact artifact = ApiArtifact.open(artifactPath)) {
+                ops.addAll(artifact.apiYaml().getData().getOperations());
+            }
+        }
+
+        this.policyLoader.pullPolicies(ops);
+        Set<PackageID> ids = PackageID.referencedBy(ops);
+        PolicyBundleWriter writer = new PolicyBundleWriter();
+
+        for (PackageID id : ids) {
+            PolicyDescriptor descriptor = this.policyLoader.loadPackage(id).getDescriptor();
+            writer.addBalaDirectory(id, this.policyLoader.getBalaPath(id), descriptor);
+        }
+
+        writer.write(bundlePath);
+        return ids;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * What code generation needs to know about a policy package: its in, out and fault flow policy functions. Unlike
+ * the package itself, a descriptor can be derived without compiling the package, from the descriptor cache or a
+ * policy bundle. A descriptor is immutable, so it can be shared across threads as is.
+ */
+public class PolicyDescriptor {
+
+    private final String org;
+    private final String name;
+    private final String version;
+    // The flows without a policy function are simply not in the index
+    private final Map<PolicyFlow, PolicyFunction> policies;
+
+    public PolicyDescriptor(String org, String name, String version, Map<PolicyFlow, PolicyFunction> policies) {
+        this.org = org;
+        this.name = name;
+        this.version = version;
+        this.policies = policies.isEmpty() ? Collections.emptyMap() : new EnumMap<>(policies);
+    }
+
+    public String org() {
+        return this.org;
+    }
+
+    public String name() {
+        return this.name;
+    }
+
+    public String version() {
+        return this.version;
+    }
+
+    public Optional<PolicyFunction> getPolicy(PolicyFlow flow) {
+        return Optional.ofNullable(this.policies.get(flow));
+    }
+
+    public Optional<PolicyFunction> getInFlowPolicy() {
+        return getPolicy(PolicyFlow.IN);
+    }
+
+    public Optional<PolicyFunction> getOutFlowPolicy() {
+        return getPolicy(PolicyFlow.OUT);
+    }
+
+    public Optional<PolicyFunction> getFaultFlowPolicy() {
+        return getPolicy(PolicyFlow.FAULT);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+/**
+ * A persistent cache of policy descriptors, kept next to the balas in the bala cache (i.e.,
+ * {@code <org>/<name>/<version>/policy-descriptor.json}). A published package version never changes, so a descriptor
+ * is valid for as long as the bala it was derived from is, which is checked with the checksum of the bala.
+ */
+class PolicyDescriptorCache {
+
+    static final String DESCRIPTOR_FILE = "policy-descriptor.json";
+    // To be incremented whenever the descriptors derived from the same bala would change
+    private static final int FORMAT_VERSION = 1;
+    private static final Gson GSON = new Gson();
+
+    private final Path balaCache;
+
+    PolicyDescriptorCache(Path balaCache) {
+        this.balaCache = balaCache;
+    }
+
+    Optional<PolicyDescriptor> read(PackageID id, String checksum) {
+        Path file = getPath(id);
+
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Entry entry = GSON.fromJson(reader, Entry.class);
+
+            if (entry == null || entry.formatVersion != FORMAT_VERSION || !checksum.equals(entry.checksum)) {
+                return Optional.empty();
+            }
+
+            return Optional.ofNullable(entry.descriptor);
+        } catch (IOException | JsonParseException e) {
+            // A corrupted entry is treated as a miss and overwritten
+            return Optional.empty();
+        }
+    }
+
+    void write(PackageID id, String checksum, PolicyDescriptor descriptor) {
+        Path file = getPath(id);
+        Entry entry = new Entry();
+        entry.formatVersion = FORMAT_VERSION;
+        entry.checksum = checksum;
+        entry.descriptor = descriptor;
+
+        try {
+            Files.createDirectories(file.getParent());
+            Path tempFile = Files.createTempFile(file.getParent(), ".descriptor-", ".tmp");
+
+            try {
+                try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                    GSON.toJson(entry, writer);
+                }
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            // The cache is only an optimization, so a read-only bala cache only means compiling the package again
+        }
+    }
+
+    private Path getPath(PackageID id) {
+        return this.balaCache.resolve(Paths.get(id.org(), id.name(), id.version(), DESCRIPTOR_FILE));
+    }
+
+    private static class Entry {
+        int formatVersion;
+        String checksum;
+        PolicyDescriptor descriptor;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim;
+
+import dev.choreo.apim.utils.Names;
+
+import java.util.Optional;
+
+/**
+ * The mediation flows a policy function can be attached to, along with the policy validator annotations which mark
+ * the functions of each flow.
+ */
+public enum PolicyFlow {
+
+    IN(Names.POLICY_IN_FLOW_ANNOT),
+    OUT(Names.POLICY_OUT_FLOW_ANNOT),
+    FAULT(Names.POLICY_FAULT_FLOW_ANNOT);
+
+    private final String annotation;
+
+    PolicyFlow(String annotation) {
+        this.annotation = annotation;
+    }
+
+    public String annotation() {
+        return this.annotation;
+    }
+
+    public static Optional<PolicyFlow> fromAnnotation(String annotation) {
+        for (PolicyFlow flow : values()) {
+            if (flow.annotation.equals(annotation)) {
+                return Optional.of(flow);
+            }
+        }
+
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim;
+
+import dev.choreo.apim.utils.Names;
+import io.ballerina.compiler.api.symbols.FunctionSymbol;
+import io.ballerina.compiler.api.symbols.ParameterKind;
+import io.ballerina.compiler.api.symbols.ParameterSymbol;
+import io.ballerina.compiler.api.symbols.TypeDescKind;
+import io.ballerina.compiler.api.symbols.TypeReferenceTypeSymbol;
+import io.ballerina.compiler.api.symbols.TypeSymbol;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The signature of a policy function, as needed for generating calls to it.
+ */
+public class PolicyFunction {
+
+    private final String name;
+    private final List<Parameter> params;
+    private final boolean independent;
+    private final boolean headerOnly;
+
+    public PolicyFunction(String name, List<Parameter> params) {
+        this(name, params, false, false);
+    }
+
+    public PolicyFunction(String name, List<Parameter> params, boolean independent, boolean headerOnly) {
+        this.name = name;
+        this.params = params;
+        this.independent = independent;
+        this.headerOnly = headerOnly;
+    }
+
+    public static PolicyFunction from(FunctionSymbol fn) {
+        List<Parameter> params = new ArrayList<>();
+        fn.typeDescriptor().params().ifPresent(symbols -> symbols.forEach(p -> params.add(Parameter.from(p))));
+        fn.typeDescriptor().restParam().ifPresent(p -> params.add(Parameter.from(p)));
+        return new PolicyFunction(fn.getName().get(), params, isAnnotated(fn, Names.POLICY_INDEPENDENT_ANNOT),
+                                  isAnnotated(fn, Names.POLICY_HEADER_ONLY_ANNOT));
+    }
+
+    private static boolean isAnnotated(FunctionSymbol fn, String annotation) {
+        return fn.annotations().stream()
+                .anyMatch(annot -> PolicyPackage.isPolicyValidatorAnnotation(annot)
+                        && annotation.equals(annot.getName().orElse(null)));
+    }
+
+    public String name() {
+        return this.name;
+    }
+
+    /**
+     * Whether the policy is independent of the other policies of the flow and does not modify the request, in which
+     * case it can run concurrently with the adjacent independent policies.
+     */
+    public boolean isIndependent() {
+        return this.independent;
+    }
+
+    /**
+     * Whether the policy only deals with the headers (i.e., never reads or sets the payload), in which case it can be
+     * applied to an operation whose payloads are streamed.
+     */
+    public boolean isHeaderOnly() {
+        return this.headerOnly;
+    }
+
+    public List<Parameter> params() {
+        return Collections.unmodifiableList(this.params);
+    }
+
+    public static class Parameter {
+
+        private final String name;
+        private final String kind;
+        private final String typeKind;
+        private final String signature;
+
+        public Parameter(String name, ParameterKind kind, TypeDescKind typeKind, String signature) {
+            this.name = name;
+            this.kind = kind.name();
+            this.typeKind = typeKind.name();
+            this.signature = signature;
+        }
+
+        static Parameter from(ParameterSymbol param) {
+            TypeSymbol type = param.typeDescriptor();
+            TypeSymbol actualType = type;
+
+            while (actualType.typeKind() == TypeDescKind.TYPE_REFERENCE) {
+                actualType = ((TypeReferenceTypeSymbol) actualType).typeDescriptor();
+            }
+
+            return new Parameter(param.getName().orElse(""), param.paramKind(), actualType.typeKind(),
+                                 type.signature());
+        }
+
+        public String name() {
+            return this.name;
+        }
+
+        public ParameterKind kind() {
+            return ParameterKind.valueOf(this.kind);
+        }
+
+        /**
+         * The kind of the type of the parameter, with type references resolved to the types they refer to.
+         */
+        public TypeDescKind typeKind() {
+            return TypeDescKind.valueOf(this.typeKind);
+        }
+
+        public String signature() {
+            return this.signature;
+        }
+
+        public boolean isDefaultable() {
+            return kind() == ParameterKind.DEFAULTABLE;
+        }
+    }
+}
@@ -18,27 +18,178 @@
 
 package dev.choreo.apim;
 
-import java.util.HashMap;
+import dev.choreo.apim.artifact.model.Operation;
+import dev.choreo.apim.profiling.GenerationProfile;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
+/**
+ * Loads and caches policy packages. Each package is loaded at most once at a time: concurrent requests for a package
+ * which is being loaded wait for that load, instead of loading the package again. The cache is bounded
+ * ({@code policy.cache.size} packages, 256 by default) and evicts the least recently used packages, so that a
+ * long-running process can go through any number of policy versions.
+ */
 public class PolicyManager {
 
+    private static final int LOAD_PARALLELISM = Integer.getInteger(
+            "policy.load.parallelism", Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    private static final int DEFAULT_CACHE_SIZE = Integer.getInteger("policy.cache.size", 256);
+
     private final PolicyPackageLoader pkgLoader;
-    private final Map<PackageID, PolicyPackage> policies = new HashMap<>();
+    private final Executor loadExecutor;
+    private final int maxSize;
+    private final Map<PackageID, CompletableFuture<PolicyPackage>> policies;
+    private long hits;
+    private long misses;
+    private long evictions;
 
     public PolicyManager(PolicyPackageLoader pkgLoader) {
+        this(pkgLoader, Executors.newFixedThreadPool(LOAD_PARALLELISM, runnable -> {
+            Thread thread = new Thread(runnable, "policy-load");
+            thread.setDaemon(true);
+            return thread;
+        }), DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param loadExecutor The executor the policy packages are loaded on when prewarming
+     * @param maxSize      The max. no. of policy packages to keep
+     */
+    public PolicyManager(PolicyPackageLoader pkgLoader, Executor loadExecutor, int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Policy cache size should be at least 1: " + maxSize);
+        }
+
         this.pkgLoader = pkgLoader;
+        this.loadExecutor = loadExecutor;
+        this.maxSize = maxSize;
+        this.policies = new LinkedHashMap<>(16, 0.75f, true);
     }
 
     public PolicyPackage get(String policyName, String version) {
-        PackageID pkgId = PackageID.from(policyName, version);
+        return get(PackageID.from(policyName, version));
+    }
 
-        if (this.policies.containsKey(pkgId)) {
-            return this.policies.get(pkgId);
+    /**
+     * Returns the given policy package, loading it on the current thread if it was neither loaded nor being loaded.
+     */
+    public PolicyPackage get(PackageID pkgId) {
+        try {
+            return load(pkgId, Runnable::run).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
         }
+    }
 
-        PolicyPackage policyPackage = this.pkgLoader.loadPackage(pkgId);
-        this.policies.put(pkgId, policyPackage);
-        return policyPackage;
+    /**
+     * Loads all the distinct policy packages referenced by the given operations in parallel, so that the code
+     * generation never has to wait for a policy package to be compiled.
+     */
+    public CompletableFuture<Void> prewarm(Collection<Operation> operations) {
+        return CompletableFuture.allOf(PackageID.referencedBy(operations).stream()
+                                               .map(id -> load(id, this.loadExecutor))
+                                               .toArray(CompletableFuture[]::new));
+    }
+
+    private CompletableFuture<PolicyPackage> load(PackageID pkgId, Executor executor) {
+        CompletableFuture<PolicyPackage> newFuture = new CompletableFuture<>();
+
+        synchronized (this) {
+            CompletableFuture<PolicyPackage> future = this.policies.get(pkgId);
+
+            if (future != null) {
+                this.hits++;
+                return future;
+            }
+
+            this.misses++;
+            this.policies.put(pkgId, newFuture);
+            trim();
+        }
+
+        executor.execute(GenerationProfile.propagate(() -> {
+            try {
+                PolicyPackage policyPackage = this.pkgLoader.loadPackage(pkgId);
+                // Resolves the policy functions as well, compiling the package if need be
+                policyPackage.getDescriptor();
+                newFuture.complete(policyPackage);
+
+                // The cache may have been over the bound while this and other packages were being loaded
+                synchronized (this) {
+                    trim();
+                }
+            } catch (RuntimeException | Error e) {
+                // Not kept, so that the load is retried on the next request
+                synchronized (this) {
+                    this.policies.remove(pkgId, newFuture);
+                }
+                newFuture.completeExceptionally(e);
+            }
+        }));
+
+        return newFuture;
+    }
+
+    /**
+     * Evicts the least recently used packages until the cache is within its bound. Packages still being loaded are
+     * never evicted, as others may be waiting for them, so the cache is trimmed again once a load completes.
+     */
+    private void trim() {
+        Iterator<CompletableFuture<PolicyPackage>> iterator = this.policies.values().iterator();
+
+        while (this.policies.size() > this.maxSize && iterator.hasNext()) {
+            if (iterator.next().isDone()) {
+                iterator.remove();
+                this.evictions++;
+            }
+        }
+    }
+
+    public synchronized CacheStats getCacheStats() {
+        return new CacheStats(this.policies.size(), this.hits, this.misses, this.evictions);
+    }
+
+    /**
+     * A snapshot of the counters of the policy package cache.
+     */
+    public static class CacheStats {
+
+        private final int size;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+
+        CacheStats(int size, long hits, long misses, long evictions) {
+            this.size = size;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        public int size() {
+            return this.size;
+        }
+
+        public long hits() {
+            return this.hits;
+        }
+
+        public long misses() {
+            return this.misses;
+        }
+
+        public long evictions() {
+            return this.evictions;
+        }
     }
 }
@@ -18,30 +18,34 @@
 
 package dev.choreo.apim;
 
+import dev.choreo.apim.profiling.GenerationProfile;
+import dev.choreo.apim.profiling.Phase;
 import dev.choreo.apim.utils.Names;
 import io.ballerina.compiler.api.ModuleID;
 import io.ballerina.compiler.api.SemanticModel;
 import io.ballerina.compiler.api.symbols.AnnotationSymbol;
 import io.ballerina.compiler.api.symbols.FunctionSymbol;
 import io.ballerina.compiler.api.symbols.Qualifier;
+import io.ballerina.compiler.api.symbols.Symbol;
 import io.ballerina.compiler.api.symbols.SymbolKind;
 import io.ballerina.projects.PackageDescriptor;
 import io.ballerina.projects.Project;
 
-import java.util.List;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
+/**
+ * A policy package, described either by a compiled bala project or by a {@link PolicyDescriptor} of it. Once the
+ * policy functions of a project are resolved, only the descriptor is kept.
+ */
 public class PolicyPackage {
 
     private String org;
     private String name;
     private String version;
     private Project project;
-    private FunctionSymbol inflowPolicy;
-    private FunctionSymbol outflowPolicy;
-    private FunctionSymbol faultflowPolicy;
-    private List<FunctionSymbol> publicFns;
+    private volatile PolicyDescriptor descriptor;
 
     public PolicyPackage(Project project) {
         this.project = project;
@@ -51,6 +55,13 @@ public class PolicyPackage {
         this.version = descriptor.version().toString();
     }
 
+    public PolicyPackage(PolicyDescriptor descriptor) {
+        this.descriptor = descriptor;
+        this.org = descriptor.org();
+        this.name = descriptor.name();
+        this.version = descriptor.version();
+    }
+
     public String org() {
         return org;
     }
@@ -59,73 +70,96 @@ public class PolicyPackage {
         return name;
     }
 
-    public Optional<FunctionSymbol> getInFlowPolicy() {
-        if (this.inflowPolicy != null) {
-            return Optional.of(this.inflowPolicy);
-        }
+    /**
+     * The prefix the package is imported with, i.e., the last part of its name (e.g., {@code bar} for {@code foo.bar}).
+     */
+    public String prefix() {
+        return prefixOf(name);
+    }
 
-        this.inflowPolicy = getPolicy(Names.POLICY_IN_FLOW_ANNOT);
-        return Optional.ofNullable(this.inflowPolicy);
+    static String prefixOf(String moduleName) {
+        return moduleName.substring(moduleName.lastIndexOf('.') + 1);
     }
 
-    public Optional<FunctionSymbol> getOutFlowPolicy() {
-        if (this.outflowPolicy != null) {
-            return Optional.of(this.outflowPolicy);
-        }
+    public Optional<PolicyFunction> getPolicy(PolicyFlow flow) {
+        return getDescriptor().getPolicy(flow);
+    }
+
+    public Optional<PolicyFunction> getInFlowPolicy() {
+        return getPolicy(PolicyFlow.IN);
+    }
 
-        this.outflowPolicy = getPolicy(Names.POLICY_OUT_FLOW_ANNOT);
-        return Optional.ofNullable(this.outflowPolicy);
+    public Optional<PolicyFunction> getOutFlowPolicy() {
+        return getPolicy(PolicyFlow.OUT);
     }
 
-    public Optional<FunctionSymbol> getFaultFlowPolicy() {
-        if (this.faultflowPolicy != null) {
-            return Optional.of(this.faultflowPolicy);
+    public Optional<PolicyFunction> getFaultFlowPolicy() {
+        return getPolicy(PolicyFlow.FAULT);
+    }
+
+    /**
+     * Returns the descriptor of the package, compiling the package to derive it if the package was not loaded from
+     * one. Once derived, the descriptor is read without locking.
+     */
+    public PolicyDescriptor getDescriptor() {
+        PolicyDescriptor descriptor = this.descriptor;
+
+        if (descriptor != null) {
+            return descriptor;
         }
 
-        this.faultflowPolicy = getPolicy(Names.POLICY_FAULT_FLOW_ANNOT);
-        return Optional.ofNullable(this.faultflowPolicy);
+        synchronized (this) {
+            if (this.descriptor == null) {
+                this.descriptor = new PolicyDescriptor(this.org, this.name, this.version, indexPolicies());
+                // The project holds on to the compilation and the semantic model, which are not needed anymore
+                this.project = null;
+            }
+
+            return this.descriptor;
+        }
     }
 
-    private FunctionSymbol getPolicy(String policyKind) {
-        for (FunctionSymbol fn : getPublicFns()) {
-            if (fn.annotations().isEmpty()) {
+    /**
+     * Finds the policy function of each flow in a single pass over the module symbols. If several functions are
+     * annotated for the same flow, the first one is used.
+     */
+    private Map<PolicyFlow, PolicyFunction> indexPolicies() {
+        SemanticModel model;
+        try (Phase phase = GenerationProfile.phase("policy-compile", this.org + "/" + this.name + ":" + this.version)) {
+            model = this.project.currentPackage().getDefaultModule().getCompilation().getSemanticModel();
+        }
+
+        Map<PolicyFlow, PolicyFunction> policies = new EnumMap<>(PolicyFlow.class);
+
+        for (Symbol symbol : model.moduleSymbols()) {
+            if (symbol.kind() != SymbolKind.FUNCTION
+                    || !((FunctionSymbol) symbol).qualifiers().contains(Qualifier.PUBLIC)) {
                 continue;
             }
 
-            if (isPolicyFunction(fn.annotations(), policyKind)) {
-                return fn;
+            FunctionSymbol fn = (FunctionSymbol) symbol;
+            for (AnnotationSymbol annot : fn.annotations()) {
+                getPolicyFlow(annot).ifPresent(flow -> {
+                    if (!policies.containsKey(flow)) {
+                        policies.put(flow, PolicyFunction.from(fn));
+                    }
+                });
             }
         }
 
-        return null;
+        return policies;
     }
 
-    private List<FunctionSymbol> getPublicFns() {
-        if (this.publicFns != null) {
-            return this.publicFns;
+    private static Optional<PolicyFlow> getPolicyFlow(AnnotationSymbol annot) {
+        if (isPolicyValidatorAnnotation(annot)) {
+            return PolicyFlow.fromAnnotation(annot.getName().get());
         }
 
-        SemanticModel model = this.project.currentPackage().getDefaultModule().getCompilation().getSemanticModel();
-        this.publicFns = model.moduleSymbols().stream()
-                .filter(sym -> sym.kind() == SymbolKind.FUNCTION
-                        && ((FunctionSymbol) sym).qualifiers().contains(Qualifier.PUBLIC))
-                .map(fn -> (FunctionSymbol) fn)
-                .collect(Collectors.toList());
-
-        return this.publicFns;
+        return Optional.empty();
     }
 
-    private boolean isPolicyFunction(List<AnnotationSymbol> annots, String policyKind) {
-        for (AnnotationSymbol annot : annots) {
-            ModuleID id = annot.getModule().get().id();
-
-            if (Names.BUILTIN_POLICY_ORG.equals(id.orgName())
-                    && Names.POLICY_VALIDATOR_PKG.equals(id.packageName())
-                    && policyKind.equals(annot.getName().get())) {
-                return true;
-            }
-        }
-
-        return false;
+    static boolean isPolicyValidatorAnnotation(AnnotationSymbol annot) {
+        ModuleID id = annot.getModule().get().id();
+        return Names.BUILTIN_POLICY_ORG.equals(id.orgName()) && Names.POLICY_VALIDATOR_PKG.equals(id.packageName());
     }
 }
@@ -19,76 +19,344 @@
 package dev.choreo.apim;
 
 import dev.choreo.apim.artifact.model.Operation;
-import dev.choreo.apim.artifact.model.Policy;
+import dev.choreo.apim.profiling.GenerationProfile;
+import dev.choreo.apim.profiling.Phase;
+import dev.choreo.apim.repos.CentralPolicyRepository;
+import dev.choreo.apim.repos.FileSystemPolicyRepository;
+import dev.choreo.apim.repos.PolicyBundle;
+import dev.choreo.apim.repos.PolicyRepository;
+import dev.choreo.apim.utils.Utils;
 import io.ballerina.projects.Project;
 import io.ballerina.projects.ProjectEnvironmentBuilder;
 import io.ballerina.projects.bala.BalaProject;
+import io.ballerina.projects.environment.Environment;
+import io.ballerina.projects.environment.EnvironmentBuilder;
 import io.ballerina.projects.repos.FileSystemCache;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class PolicyPackageLoader {
 
     private static final Path CENTRAL_CACHE = Paths.get("repositories", "central.ballerina.io", "bala");
-    private final Path localRepo;
-    private final ProjectEnvironmentBuilder envBuilder;
+    private static final int PULL_PARALLELISM = Integer.getInteger("policy.pull.parallelism", 4);
+    private static final String DEFAULT_PLATFORM = "any";
+    private static final String PACKAGE_JSON = "package.json";
+
+    private final Path balaCache;
+    private final FileSystemCache.FileSystemCacheFactory compilationCacheFactory;
+    private final Path compilationCache;
+    private final PolicyRepository repository;
+    private final PolicyBundle bundle;
+    private final PolicyDescriptorCache descriptorCache;
+    private final ExecutorService pullExecutor;
+    private final Map<PackageID, CompletableFuture<Void>> inFlightPulls = new ConcurrentHashMap<>();
+    private final Map<Path, BalaChecksum> balaChecksums = new ConcurrentHashMap<>();
+    // The compiler environments not in use by a load at the moment
+    private final Queue<Environment> environments = new ConcurrentLinkedQueue<>();
 
     public PolicyPackageLoader(Path baldistHome, Path localRepo) {
-        this.localRepo = localRepo;
-        this.envBuilder = ProjectEnvironmentBuilder.getDefaultBuilder()
-                .addCompilationCacheFactory(
-                        new FileSystemCache.FileSystemCacheFactory(baldistHome.resolve("repo/cache")));
+        this(baldistHome, localRepo, defaultRepository(), defaultBundle());
+    }
+
+    public PolicyPackageLoader(Path baldistHome, Path localRepo, PolicyRepository repository) {
+        this(baldistHome, localRepo, repository, null);
+    }
+
+    /**
+     * @param bundle A policy bundle the packages are loaded from, in preference to the bala cache. May be null.
+     */
+    public PolicyPackageLoader(Path baldistHome, Path localRepo, PolicyRepository repository, PolicyBundle bundle) {
+        this.balaCache = localRepo.resolve(CENTRAL_CACHE);
+        this.repository = repository;
+        this.bundle = bundle;
+        this.descriptorCache = new PolicyDescriptorCache(this.balaCache);
+        this.compilationCache = getCompilationCache(baldistHome);
+        this.compilationCacheFactory = new FileSystemCache.FileSystemCacheFactory(this.compilationCache);
+        this.pullExecutor = Executors.newFixedThreadPool(Math.max(1, PULL_PARALLELISM), runnable -> {
+            Thread thread = new Thread(runnable, "policy-pull");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * The directory the compiled BIR of the policy packages and their dependencies is cached in. All the policy loads
+     * of the process share this directory, and it can be shared by several generator processes as well. Set with the
+     * {@code policy.compilation.cache} system property, or else the cache of the Ballerina distribution.
+     */
+    private static Path getCompilationCache(Path baldistHome) {
+        String compilationCache = System.getProperty("policy.compilation.cache");
+        return compilationCache != null ? Paths.get(compilationCache) : baldistHome.resolve("repo/cache");
+    }
+
+    /**
+     * The repository policies are pulled from. Central is used unless a local repository directory is given with
+     * the {@code policy.repository} system property.
+     */
+    static PolicyRepository defaultRepository() {
+        String localRepository = System.getProperty("policy.repository");
+
+        if (localRepository != null) {
+            return new FileSystemPolicyRepository(Paths.get(localRepository));
+        }
+
+        return new CentralPolicyRepository(
+                System.getProperty("policy.repository.url", CentralPolicyRepository.DEFAULT_URL));
+    }
+
+    /**
+     * The policy bundle given with the {@code policy.bundle} system property, if any.
+     */
+    private static PolicyBundle defaultBundle() {
+        String bundlePath = System.getProperty("policy.bundle");
+
+        if (bundlePath == null) {
+            return null;
+        }
+
+        try {
+            return PolicyBundle.open(Paths.get(bundlePath));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the policy bundle: " + bundlePath, e);
+        }
     }
 
+    /**
+     * Loads the given policy package. The package is only compiled if its descriptor is neither in the policy bundle
+     * nor in the descriptor cache, and the descriptor is then cached for the next runs. A package is compiled by one
+     * thread or process at a time, while different packages are compiled in parallel.
+     */
     public PolicyPackage loadPackage(PackageID id) {
-        Path policyPath = this.localRepo.resolve(
-                Paths.get("repositories/central.ballerina.io/bala", id.org(), id.name(), id.version(), "any"));
-        Project balaProject = BalaProject.loadProject(this.envBuilder, policyPath);
-        return new PolicyPackage(balaProject);
+        if (isBundled(id)) {
+            Optional<PolicyDescriptor> descriptor = this.bundle.getDescriptor(id);
+
+            if (descriptor.isPresent()) {
+                return new PolicyPackage(descriptor.get());
+            }
+        }
+
+        String checksum;
+        Optional<PolicyDescriptor> descriptor;
+
+        try (Phase phase = GenerationProfile.phase("policy-descriptor-read", id.toString())) {
+            checksum = getChecksum(id);
+            descriptor = this.descriptorCache.read(id, checksum);
+        }
+
+        if (descriptor.isPresent()) {
+            return new PolicyPackage(descriptor.get());
+        }
+
+        return new CompilationCacheLock(this.compilationCache, id).withLock(() -> {
+            // Another process may have compiled the package while this one was waiting for the lock
+            Optional<PolicyDescriptor> compiledDescriptor = this.descriptorCache.read(id, checksum);
+
+            if (compiledDescriptor.isPresent()) {
+                return new PolicyPackage(compiledDescriptor.get());
+            }
+
+            PolicyPackage policyPackage;
+            Environment environment = checkOutEnvironment();
+
+            try (Phase phase = GenerationProfile.phase("policy-load", id.toString())) {
+                Project balaProject = BalaProject.loadProject(newEnvironmentBuilder(environment), getBalaPath(id));
+                policyPackage = new PolicyPackage(balaProject);
+            } finally {
+                this.environments.add(environment);
+            }
+
+            this.descriptorCache.write(id, checksum, policyPackage.getDescriptor());
+            return policyPackage;
+        });
     }
 
-    public void pullPolicies(Collection<Operation> ops) {
-        for (Operation op : ops) {
-            op.getOperationPolicies().getRequest().forEach(this::pullPolicy);
-            op.getOperationPolicies().getResponse().forEach(this::pullPolicy);
-            op.getOperationPolicies().getFault().forEach(this::pullPolicy);
+    /**
+     * Takes a compiler environment which is not in use, or creates one if all are. The environments are reused across
+     * loads, so that the dependencies resolved and compiled for a package (e.g., {@code ballerina/http}) are kept in
+     * the package cache of the environment for the next packages. An environment is not thread-safe though, so the
+     * packages loaded in parallel (i.e., under different compilation cache locks) each check out an environment of
+     * their own. There are thus as many environments as the most packages loaded at a time.
+     */
+    private Environment checkOutEnvironment() {
+        Environment environment = this.environments.poll();
+        return environment != null ? environment : EnvironmentBuilder.buildDefault();
+    }
+
+    private ProjectEnvironmentBuilder newEnvironmentBuilder(Environment environment) {
+        return ProjectEnvironmentBuilder.getBuilder(environment)
+                .addCompilationCacheFactory(this.compilationCacheFactory);
+    }
+
+    /**
+     * The path the given package is loaded from: a bala file from the policy bundle if the bundle has the package, or
+     * else the extracted bala in the bala cache (i.e., the platform directory of the package).
+     */
+    public Path getBalaPath(PackageID id) {
+        if (isBundled(id)) {
+            try {
+                return this.bundle.balaFile(id);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
         }
+
+        return findPulledBala(id).orElseGet(
+                () -> this.balaCache.resolve(Paths.get(id.org(), id.name(), id.version(), DEFAULT_PLATFORM)));
     }
 
-    private void pullPolicy(Policy policy) {
-        String[] nameCmpts = policy.getPolicyName().split("/");
+    /**
+     * Finds the platform directory a package was extracted to in the bala cache. A bala is only moved into place once
+     * fully extracted, so a platform directory with a {@code package.json} is what marks a package as pulled.
+     */
+    private Optional<Path> findPulledBala(PackageID id) {
+        Path versionDir = this.balaCache.resolve(Paths.get(id.org(), id.name(), id.version()));
 
-        if (nameCmpts.length != 2) {
-            throw new IllegalArgumentException("Invalid policy name format: " + policy.getPolicyName());
+        if (!Files.isDirectory(versionDir)) {
+            return Optional.empty();
         }
 
-        Path policyCachePath = this.localRepo.resolve(
-                Paths.get(CENTRAL_CACHE.toString(), nameCmpts[0], nameCmpts[1], policy.getPolicyVersion()));
+        try (Stream<Path> platformDirs = Files.list(versionDir)) {
+            return platformDirs.filter(dir -> Files.isRegularFile(dir.resolve(PACKAGE_JSON))).sorted().findFirst();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-        if (Files.exists(policyCachePath)) {
-            return;
+    /**
+     * The checksum of the bala of the given package. For a package in the bala cache, this is a digest of the paths
+     * and the contents of the files of the extracted bala. A bala is extracted to a new directory which is then moved
+     * into place, so the digest is computed once per directory and kept until the directory is replaced.
+     */
+    private String getChecksum(PackageID id) {
+        if (isBundled(id)) {
+            return this.bundle.getChecksum(id);
         }
 
-        ProcessBuilder builder = new ProcessBuilder();
-        builder.command("bal", "pull",
-                        String.format("%s/%s:%s", nameCmpts[0], nameCmpts[1], policy.getPolicyVersion()));
+        Path balaDir = getBalaPath(id);
+        FileTime lastModified;
 
         try {
-            Process process = builder.start();
-            InputStream inputStream = process.getErrorStream();
-            inputStream.transferTo(System.err);
-            int exitVal = process.waitFor();
+            lastModified = Files.getLastModifiedTime(balaDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        BalaChecksum cached = this.balaChecksums.get(balaDir);
+
+        if (cached != null && cached.lastModified.equals(lastModified)) {
+            return cached.checksum;
+        }
+
+        String checksum = computeChecksum(balaDir);
+        this.balaChecksums.put(balaDir, new BalaChecksum(lastModified, checksum));
+        return checksum;
+    }
+
+    private static String computeChecksum(Path balaDir) {
+        MessageDigest digest = Utils.newSha256Digest();
 
-            if (exitVal != 0) {
-                throw new RuntimeException("'bal pull' command exited unexpectedly");
+        try (Stream<Path> paths = Files.walk(balaDir)) {
+            for (Path file : paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList())) {
+                digest.update(balaDir.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(Files.readAllBytes(file));
             }
-        } catch (IOException | InterruptedException e) {
-            throw new RuntimeException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return Utils.toHex(digest.digest());
+    }
+
+    private boolean isBundled(PackageID id) {
+        return this.bundle != null && this.bundle.contains(id);
+    }
+
+    /**
+     * Pulls the policy packages referenced by the given operations which are not in the local bala cache yet. Each
+     * distinct package is pulled once, even if it is referenced by several operations or is already being pulled
+     * for another generation run, and the packages are pulled in parallel. Packages in the policy bundle are never
+     * pulled.
+     */
+    public void pullPolicies(Collection<Operation> ops) {
+        List<CompletableFuture<Void>> pulls = new ArrayList<>();
+
+        for (PackageID id : PackageID.referencedBy(ops)) {
+            if (!isBundled(id) && findPulledBala(id).isEmpty()) {
+                pulls.add(pull(id));
+            }
+        }
+
+        try {
+            CompletableFuture.allOf(pulls.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            throw e;
+        }
+    }
+
+    private CompletableFuture<Void> pull(PackageID id) {
+        CompletableFuture<Void> pull = new CompletableFuture<>();
+        CompletableFuture<Void> inFlightPull = this.inFlightPulls.putIfAbsent(id, pull);
+
+        if (inFlightPull != null) {
+            return inFlightPull;
+        }
+
+        CompletableFuture.runAsync(GenerationProfile.propagate(() -> {
+            try (Phase phase = GenerationProfile.phase("policy-download", id.toString())) {
+                this.repository.pull(id, this.balaCache);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }), this.pullExecutor).whenComplete((result, error) -> {
+            // Once completed, the outcome is in the bala cache (or the pull can be retried in a later run)
+            this.inFlightPulls.remove(id, pull);
+
+            if (error != null) {
+                pull.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+            } else {
+                pull.complete(null);
+            }
+        });
+
+        return pull;
+    }
+
+    private static class BalaChecksum {
+
+        private final FileTime lastModified;
+        private final String checksum;
+
+        BalaChecksum(FileTime lastModified, String checksum) {
+            this.lastModified = lastModified;
+            this.checksum = checksum;
         }
     }
 }
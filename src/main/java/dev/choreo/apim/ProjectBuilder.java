@@ -18,84 +18,115 @@
 
 package dev.choreo.apim;
 
+import dev.choreo.apim.profiling.GenerationProfile;
+import dev.choreo.apim.profiling.Phase;
 import io.ballerina.projects.BuildOptions;
+import io.ballerina.projects.Document;
 import io.ballerina.projects.Project;
 import io.ballerina.projects.directory.ProjectLoader;
+import org.yaml.snakeyaml.Yaml;
 
-import java.io.BufferedReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
-import java.util.stream.Collectors;
+import java.util.Map;
+
+import static dev.choreo.apim.utils.ProjectAPIUtils.getDocument;
 
 class ProjectBuilder {
 
+    static final String SERVICE_FILE = "proxy_service.bal";
+    private static final String OBSERVABILITY_CONFIG = "[ballerina.observe]\n"
+            + "metricsEnabled = true\n"
+            + "metricsReporter = \"prometheus\"\n"
+            + "tracingEnabled = true\n"
+            + "tracingProvider = \"jaeger\"\n";
+
     private Path projectPath;
-    private Path openapiFilePath;
+    private Map<String, Object> openapiDef;
 
     ProjectBuilder initProject(Path destPath) throws IOException {
+        return initProject(destPath, false);
+    }
+
+    /**
+     * @param observabilityIncluded Whether to build the project with observability, and to have it publish metrics
+     *                              to Prometheus and traces to Jaeger at runtime
+     */
+    ProjectBuilder initProject(Path destPath, boolean observabilityIncluded) throws IOException {
         if (destPath == null) {
             throw new IllegalArgumentException("Destination path for the project cannot be 'null'");
         }
 
-        String name = String.format("bal_proxy_%s", Instant.now().toEpochMilli());
-        this.projectPath = Files.createDirectory(destPath.resolve(name));
-        Files.createFile(this.projectPath.resolve("Ballerina.toml"));
+        this.projectPath = createProjectDirectory(destPath);
+        Path balToml = Files.createFile(this.projectPath.resolve("Ballerina.toml"));
+
+        if (observabilityIncluded) {
+            Files.writeString(balToml, "[build-options]\nobservabilityIncluded = true\n");
+            Files.writeString(this.projectPath.resolve("Config.toml"), OBSERVABILITY_CONFIG);
+        }
+
         return this;
     }
 
-    ProjectBuilder addOpenAPIDefinition(InputStream openapiStream) throws IOException {
+    ProjectBuilder addOpenAPIDefinition(InputStream openapiStream) {
         if (this.projectPath == null) {
             throw new IllegalStateException("A project needs to be initialized before adding the OpenAPI file");
         }
 
-        this.openapiFilePath = Files.createFile(this.projectPath.resolve("proxy.yaml"));
+        return addOpenAPIDefinition(new Yaml().<Map<String, Object>>load(openapiStream));
+    }
 
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(openapiStream));
-             FileWriter writer = new FileWriter(openapiFilePath.toString())) {
-            String content = reader.lines().collect(Collectors.joining(System.lineSeparator()));
-            writer.write(content);
-            writer.flush();
+    ProjectBuilder addOpenAPIDefinition(Map<String, Object> openapiDef) {
+        if (this.projectPath == null) {
+            throw new IllegalStateException("A project needs to be initialized before adding the OpenAPI file");
         }
 
+        this.openapiDef = openapiDef;
         return this;
     }
 
-    Project build() {
-        if (this.projectPath == null || this.openapiFilePath == null) {
+    /**
+     * Builds the project and returns the service document. The service stub is generated in-process and is only
+     * held in memory, as the document content, until the mediation code has been added to it.
+     */
+    Document build() throws IOException {
+        if (this.projectPath == null || this.openapiDef == null) {
             throw new IllegalStateException(
                     "A project needs to be initialized and an OpenAPI file added before building the project");
         }
 
-        generateService(this.openapiFilePath, this.projectPath);
-        BuildOptions defaultOptions = BuildOptions.builder().setOffline(true).setDumpBirFile(true).build();
-        return ProjectLoader.loadProject(this.projectPath, defaultOptions);
+        String serviceStub;
+        try (Phase phase = GenerationProfile.phase("openapi-generation")) {
+            serviceStub = new OpenAPIServiceGenerator(this.openapiDef).generate();
+        }
+
+        try (Phase phase = GenerationProfile.phase("project-load")) {
+            Files.createFile(this.projectPath.resolve(SERVICE_FILE));
+            BuildOptions defaultOptions = BuildOptions.builder().setOffline(true).setDumpBirFile(true).build();
+            Project project = ProjectLoader.loadProject(this.projectPath, defaultOptions);
+            Document serviceDoc = getDocument(project.currentPackage().getDefaultModule(), SERVICE_FILE);
+            return serviceDoc.modify().withContent(serviceStub).apply();
+        }
     }
 
     Path getProjectPath() {
         return this.projectPath;
     }
 
-    private void generateService(Path openAPIDef, Path projectPath) {
-        ProcessBuilder builder = new ProcessBuilder();
-        builder.command("bal", "openapi", "-i", openAPIDef.toString(), "-o", projectPath.toString(), "--mode",
-                        "service");
-
-        try {
-            Process process = builder.start();
-            InputStream inputStream = process.getErrorStream();
-            inputStream.transferTo(System.err);
-            int exitVal = process.waitFor();
+    private static Path createProjectDirectory(Path destPath) throws IOException {
+        String name = String.format("bal_proxy_%s", Instant.now().toEpochMilli());
 
-            if (exitVal != 0) {
-                throw new RuntimeException("'bal openapi' command exited unexpectedly");
+        // Several projects may get initialized within the same millisecond when generating in batch mode
+        for (int i = 1; ; i++) {
+            try {
+                return Files.createDirectory(destPath.resolve(name));
+            } catch (FileAlreadyExistsException e) {
+                name = String.format("bal_proxy_%s_%d", Instant.now().toEpochMilli(), i);
             }
-        } catch (IOException | InterruptedException e) {
-            throw new RuntimeException(e);
         }
     }
 }
@@ -18,92 +18,291 @@
 
 package dev.choreo.apim;
 
+import dev.choreo.apim.artifact.ApiArtifact;
 import dev.choreo.apim.artifact.model.APIYaml;
 import dev.choreo.apim.artifact.model.EndpointConfig;
 import dev.choreo.apim.artifact.model.Operation;
+import dev.choreo.apim.profiling.GenerationProfile;
+import dev.choreo.apim.profiling.Phase;
+import dev.choreo.apim.utils.MediationCodeGenException;
+import io.ballerina.compiler.syntax.tree.SyntaxTree;
 import io.ballerina.projects.Document;
-import io.ballerina.projects.Module;
-import io.ballerina.projects.Project;
 import io.ballerina.tools.text.TextDocument;
 import io.ballerina.tools.text.TextDocumentChange;
+import io.ballerina.tools.text.TextDocuments;
 import io.ballerina.tools.text.TextEdit;
 import io.ballerina.tools.text.TextLine;
 import io.ballerina.tools.text.TextRange;
 import org.yaml.snakeyaml.Yaml;
-import org.yaml.snakeyaml.representer.Representer;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Enumeration;
+import java.util.Collection;
 import java.util.Map;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
-import static dev.choreo.apim.utils.ProjectAPIUtils.getDocument;
 import static dev.choreo.apim.utils.ProjectAPIUtils.getLastLineInFile;
+import static dev.choreo.apim.utils.Utils.readResource;
 
 public class ProxyGenerator {
 
+    // Generates a mediation function per distinct policy chain, instead of inlining the mediation in each resource
+    private static final boolean SHARED_MEDIATION = Boolean.getBoolean("proxygen.mediation.shared");
+    private static final boolean OBSERVABILITY = Boolean.getBoolean("proxygen.observability");
+    private static final Executor DEFAULT_STAGE_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "proxygen-stage");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final PolicyPackageLoader policyLoader;
+    private final PolicyManager policyManager;
+    private final Executor stageExecutor;
+    private final String inflowTemplate = getInflowTemplate();
+    private final String outflowTemplate = getOutflowTemplate();
+    private final String faultflowTemplate = getFaultFlowTemplate();
+
+    public ProxyGenerator(PolicyPackageLoader policyLoader, PolicyManager policyManager) {
+        this(policyLoader, policyManager, DEFAULT_STAGE_EXECUTOR);
+    }
+
+    /**
+     * @param stageExecutor Executor on which the stages of a run which are independent of the service stub
+     *                      generation (i.e., pulling and loading the policies) are run
+     */
+    public ProxyGenerator(PolicyPackageLoader policyLoader, PolicyManager policyManager, Executor stageExecutor) {
+        this.policyLoader = policyLoader;
+        this.policyManager = policyManager;
+        this.stageExecutor = stageExecutor;
+    }
+
     public static void main(String[] args) throws IOException {
         // Needs to be the actual bal distribution. e.g., ballerina-2201.0.0-swan-lake/distributions/ballerina-2201.0.3
         System.setProperty("ballerina.home", args[0]);
+        ProxyGenerator generator = create(Paths.get(args[0]));
+
+        if (args.length > 2) {
+            generator.regenerate(Paths.get(args[1]), Paths.get(args[2]));
+            return;
+        }
+
+        generator.generate(Paths.get(args[1]), Path.of(System.getProperty("user.dir")));
+    }
+
+    public static ProxyGenerator create(Path balHome) {
+        PolicyPackageLoader policyLoader = new PolicyPackageLoader(balHome, Paths.get(System.getProperty("user.home"),
+                                                                                      ".ballerina"));
+        return new ProxyGenerator(policyLoader, new PolicyManager(policyLoader));
+    }
+
+    public PolicyManager getPolicyManager() {
+        return this.policyManager;
+    }
+
+    /**
+     * Generates the mediation service for the given API artifact. All the state of a generation run is confined to
+     * this method, so a single generator instance can be used to process several artifacts concurrently.
+     *
+     * @param artifactPath Path to the API artifact (a zip, a tar.gz or an exploded directory)
+     * @param destPath     Directory in which the Ballerina project for the service should be created
+     * @return The path of the generated Ballerina project
+     */
+    public Path generate(Path artifactPath, Path destPath) throws IOException {
+        try (ApiArtifact apiArtifact = ApiArtifact.open(artifactPath)) {
+            return generate(apiArtifact, destPath);
+        }
+    }
+
+    public Path generate(ApiArtifact apiArtifact, Path destPath) throws IOException {
+        GenerationProfile profile = GenerationProfile.begin(apiArtifact.name());
+        Path projectPath;
+
+        try {
+            projectPath = generateProject(apiArtifact, destPath);
+        } finally {
+            profile.close();
+        }
+
+        profile.writeReport(projectPath);
+        return projectPath;
+    }
+
+    private Path generateProject(ApiArtifact apiArtifact, Path destPath) throws IOException {
         ProjectBuilder projectBuilder = new ProjectBuilder();
-        APIYaml artifact = getAPIArtifact(getInputStreamFromZip(args[1], "/api.yaml"));
+        APIYaml artifact;
+        byte[] openapiDef;
+
+        Map<String, Object> openapi;
+
+        try (Phase phase = GenerationProfile.phase("artifact-read")) {
+            artifact = apiArtifact.apiYaml();
+            openapiDef = apiArtifact.read(ApiArtifact.OPENAPI_DEFINITION);
+            openapi = readOpenAPIDefinition(openapiDef);
+        }
+
         Map<String, Operation> operations = artifact.getData().toOpsMap();
-        Project project = projectBuilder
-                .initProject(Path.of(System.getProperty("user.dir")))
-                .addOpenAPIDefinition(getInputStreamFromZip(args[1], "/Definitions/swagger.yaml"))
+        GenerationFingerprint fingerprint = GenerationFingerprint.from(openapiDef, artifact.getData(), operations,
+                                                                       generationOptions());
+
+        // Resolving the policies only depends on the API metadata, so the policies are pulled and loaded while the
+        // service stub is being generated. The two stages join before the mediation code is generated.
+        CompletableFuture<Void> policyStage = CompletableFuture.runAsync(
+                GenerationProfile.propagate(() -> resolvePolicies(operations.values())), this.stageExecutor);
+
+        Document serviceDoc = projectBuilder
+                .initProject(destPath, OBSERVABILITY)
+                .addOpenAPIDefinition(openapi)
                 .build();
-        Module module = project.currentPackage().getDefaultModule();
-        Document serviceDoc = getDocument(module, "proxy_service.bal");
         TextDocument txtDoc = serviceDoc.textDocument();
+        Document updatedServiceDoc;
+
+        try (Phase phase = GenerationProfile.phase("boilerplate-apply")) {
+            TextDocumentChange docChange = getCodeSnippets(serviceDoc, artifact.getData().getEndpointConfig());
+            txtDoc = txtDoc.apply(docChange);
+            updatedServiceDoc = serviceDoc.modify().withContent(txtDoc.toString()).apply();
+        }
+
+        try (Phase phase = GenerationProfile.phase("policy-stage-wait")) {
+            await(policyStage);
+        }
+
+        StreamingOperations.check(operations.values(), this.policyManager);
+
+        TextDocumentChange docChange;
+        try (Phase phase = GenerationProfile.phase("transform")) {
+            CodeGenerator codegen = newCodeGenerator(operations);
+            SyntaxTreeTransformer transformer = new SyntaxTreeTransformer();
+            docChange = transformer.modifyDoc(updatedServiceDoc, codegen);
+        }
 
-        TextDocumentChange docChange = getCodeSnippets(serviceDoc, artifact.getData().getEndpointConfig());
-        txtDoc = txtDoc.apply(docChange);
-        Document updatedServiceDoc = serviceDoc.modify().withContent(txtDoc.toString()).apply();
+        try (Phase phase = GenerationProfile.phase("mediation-apply")) {
+            txtDoc = txtDoc.apply(docChange);
+            updatedServiceDoc = updatedServiceDoc.modify().withContent(txtDoc.toString()).apply();
+        }
 
-        PolicyPackageLoader policyLoader = new PolicyPackageLoader(Paths.get(args[0]),
-                                                                   Paths.get(System.getProperty("user.home"),
-                                                                             ".ballerina"));
-        policyLoader.pullPolicies(operations.values());
-        PolicyManager policyManager = new PolicyManager(policyLoader);
-        CodeGenerator codegen = new CodeGenerator(getInflowTemplate(), getOutflowTemplate(),
-                                                  getFaultFlowTemplate(), policyManager, operations);
-        SyntaxTreeTransformer transformer = new SyntaxTreeTransformer();
-        docChange = transformer.modifyDoc(updatedServiceDoc, codegen);
-        txtDoc = txtDoc.apply(docChange);
-        updatedServiceDoc = updatedServiceDoc.modify().withContent(txtDoc.toString()).apply();
+        try (Phase phase = GenerationProfile.phase("write")) {
+            writeToFile(updatedServiceDoc, projectBuilder.getProjectPath());
+            fingerprint.write(projectBuilder.getProjectPath());
+        }
 
-        writeToFile(updatedServiceDoc, projectBuilder.getProjectPath());
+        return projectBuilder.getProjectPath();
     }
 
-    private static InputStream getInputStreamFromZip(String zipFilePath, String targetFileInZip) throws IOException {
-        ZipFile zipFile = new ZipFile(zipFilePath);
-        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+    /**
+     * Brings a project generated by a previous run up to date with the given API artifact. Only the resources whose
+     * operation policies changed since the previous run are regenerated and the service file is left untouched if
+     * nothing changed. If the OpenAPI definition or the endpoint config changed, the project cannot be updated
+     * incrementally, in which case a new project is generated next to the previous one.
+     *
+     * @param artifactPath Path to the API artifact (a zip, a tar.gz or an exploded directory)
+     * @param projectPath  Path to the project generated by a previous run
+     * @return The path of the up-to-date Ballerina project
+     */
+    public Path regenerate(Path artifactPath, Path projectPath) throws IOException {
+        try (ApiArtifact apiArtifact = ApiArtifact.open(artifactPath)) {
+            return regenerate(apiArtifact, projectPath);
+        }
+    }
+
+    public Path regenerate(ApiArtifact apiArtifact, Path projectPath) throws IOException {
+        APIYaml artifact = apiArtifact.apiYaml();
+        Map<String, Operation> operations = artifact.getData().toOpsMap();
+        byte[] openapiDef = apiArtifact.read(ApiArtifact.OPENAPI_DEFINITION);
+        GenerationFingerprint fingerprint = GenerationFingerprint.from(openapiDef, artifact.getData(), operations,
+                                                                       generationOptions());
+        GenerationFingerprint previous = GenerationFingerprint.read(projectPath).orElse(null);
+
+        if (!fingerprint.isIncrementallyUpdatable(previous)) {
+            return generate(apiArtifact, projectPath.toAbsolutePath().getParent());
+        }
+
+        Set<String> changedOps = fingerprint.changedOperations(previous);
+
+        if (changedOps.isEmpty()) {
+            return projectPath;
+        }
 
-        while (entries.hasMoreElements()) {
-            ZipEntry entry = entries.nextElement();
+        Path serviceFile = projectPath.resolve(ProjectBuilder.SERVICE_FILE);
+        String content = Files.readString(serviceFile);
+        TextDocument txtDoc = TextDocuments.from(content);
+        // The policies of the unchanged operations are needed too, for the module members the service refers to
+        this.policyLoader.pullPolicies(operations.values());
+        StreamingOperations.check(operations.values(), this.policyManager);
+        IncrementalTransformer transformer = new IncrementalTransformer(changedOps);
+        TextDocumentChange docChange = transformer.modifyDoc(SyntaxTree.from(txtDoc), newCodeGenerator(operations));
+        String updatedContent = txtDoc.apply(docChange).toString();
+
+        if (!updatedContent.equals(content)) {
+            Files.writeString(serviceFile, updatedContent);
+        }
+
+        fingerprint.write(projectPath);
+        return projectPath;
+    }
+
+    private void resolvePolicies(Collection<Operation> operations) {
+        try (Phase phase = GenerationProfile.phase("policy-pull")) {
+            this.policyLoader.pullPolicies(operations);
+        }
 
-            if (entry.getName().endsWith(targetFileInZip)) {
-                return zipFile.getInputStream(entry);
+        // Loads and compiles the policy packages up front so that the code generation doesn't have to
+        try (Phase phase = GenerationProfile.phase("policy-prewarm")) {
+            await(this.policyManager.prewarm(operations));
+        }
+    }
+
+    private static void await(CompletableFuture<?> stage) {
+        try {
+            stage.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
         }
+    }
 
-        throw new AssertionError(String.format("'%s' file not found in the API artifact", targetFileInZip));
+    private CodeGenerator newCodeGenerator(Map<String, Operation> operations) {
+        return new CodeGenerator(this.inflowTemplate, this.outflowTemplate, this.faultflowTemplate,
+                                 this.policyManager, operations, SHARED_MEDIATION, OBSERVABILITY);
     }
 
-    // TODO: 2022-06-02 Refactor this. Maybe hide this behind a defined API for the API artifact.
-    private static APIYaml getAPIArtifact(InputStream in) {
-        Representer representer = new Representer();
-        representer.getPropertyUtils().setSkipMissingProperties(true);
-        Yaml yaml = new Yaml(representer);
-        return yaml.loadAs(in, APIYaml.class);
+    /**
+     * The options which the whole generated service depends on, for the generation fingerprint.
+     */
+    private static SortedSet<String> generationOptions() {
+        SortedSet<String> options = new TreeSet<>();
+        options.add("generated-code-version=" + CodeGenerator.GENERATED_CODE_VERSION);
+        if (SHARED_MEDIATION) {
+            options.add("shared-mediation");
+        }
+        if (OBSERVABILITY) {
+            options.add("observability");
+        }
+        return options;
+    }
+
+    private static Map<String, Object> readOpenAPIDefinition(byte[] openapiDef) {
+        Map<String, Object> openapi = new Yaml().load(new ByteArrayInputStream(openapiDef));
+
+        if (openapi == null || openapi.get("paths") == null) {
+            throw new MediationCodeGenException("Invalid OpenAPI definition: no paths found");
+        }
+        return openapi;
     }
 
     private static void writeToFile(Document doc, Path projectPath) throws IOException {
@@ -114,8 +313,9 @@ public class ProxyGenerator {
     }
 
     private static TextDocumentChange getCodeSnippets(Document doc, EndpointConfig endpointConfig) {
-        String content = String.format(readFile("code-snippets/boilerplate.bal"),
-                                       endpointConfig.getProduction_endpoints().getUrl());
+        String backendClient = BackendClientGenerator.generate(readResource("code-snippets/backend_client.bal"),
+                                                               endpointConfig);
+        String content = String.format(readResource("code-snippets/boilerplate.bal"), backendClient);
         TextLine line = getLastLineInFile(doc.textDocument());
         TextRange textRange = TextRange.from(line.endOffset(), 0);
         TextEdit edit = TextEdit.from(textRange, content);
@@ -123,31 +323,14 @@ public class ProxyGenerator {
     }
 
     private static String getInflowTemplate() {
-        return readFile("code-snippets/inflow_template.bal");
+        return readResource("code-snippets/inflow_template.bal");
     }
 
     private static String getOutflowTemplate() {
-        return readFile("code-snippets/outflow_template.bal");
+        return readResource("code-snippets/outflow_template.bal");
     }
 
     private static String getFaultFlowTemplate() {
-        return readFile("code-snippets/faultflow_template.bal");
-    }
-
-    private static String readFile(String filePath) {
-        StringBuilder builder = new StringBuilder();
-        InputStream fileStream = ProxyGenerator.class.getClassLoader().getResourceAsStream(filePath);
-
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(fileStream))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                builder.append(line).append('\n');
-            }
-            fileStream.close();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-
-        return builder.toString();
+        return readResource("code-snippets/faultflow_template.bal");
     }
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim;
+
+import dev.choreo.apim.artifact.model.AttachedPolicies;
+import dev.choreo.apim.artifact.model.Operation;
+import dev.choreo.apim.artifact.model.Policy;
+import dev.choreo.apim.utils.MediationCodeGenException;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Validates the operations flagged with {@code streaming: true} in the {@code api.yaml}. The generated resources
+ * forward the payloads without reading them, so they are only streamed through the proxy as long as nothing on the
+ * way buffers them. This is not generated differently; instead, the request and response policies of these operations
+ * have to be header-only (i.e., annotated with {@code @policy_validator:HeaderOnly}) and the operations cannot have a
+ * response cache, since caching reads the whole response payload.
+ */
+final class StreamingOperations {
+
+    private StreamingOperations() {
+    }
+
+    /**
+     * Fails the generation if a streaming operation has a response cache or a policy which is not header-only.
+     */
+    static void check(Collection<Operation> operations, PolicyManager policyManager) {
+        for (Operation operation : operations) {
+            if (!operation.isStreaming()) {
+                continue;
+            }
+
+            if (operation.getResponseCache() != null) {
+                throw new MediationCodeGenException(String.format(
+                        "Operation %s %s is streamed, but has a response cache", operation.getVerb(),
+                        operation.getTarget()));
+            }
+
+            Optional<Policy> policy = findPayloadPolicy(operation, policyManager);
+
+            if (policy.isPresent()) {
+                throw new MediationCodeGenException(String.format(
+                        "Operation %s %s is streamed, but policy %s:%s is not header-only", operation.getVerb(),
+                        operation.getTarget(), policy.get().getPolicyName(), policy.get().getPolicyVersion()));
+            }
+        }
+    }
+    private static Optional<Policy> findPayloadPolicy(Operation operation, PolicyManager policyManager) {
+        AttachedPolicies policies = operation.getOperationPolicies();
+
+        for (Policy policy : policies.getRequest()) {
+            PolicyPackage pkg = policyManager.get(policy.getPolicyName(), policy.getPolicyVersion());
+            if (!pkg.getInFlowPolicy().map(PolicyFunction::isHeaderOnly).orElse(true)) {
+                return Optional.of(policy);
+            }
+        }
+
+        for (Policy policy : policies.getResponse()) {
+            PolicyPackage pkg = policyManager.get(policy.getPolicyName(), policy.getPolicyVersion());
+            if (!pkg.getOutFlowPolicy().map(PolicyFunction::isHeaderOnly).orElse(true)) {
+                return Optional.of(policy);
+            }
+        }
+
+        return Optional.empty();
+    }
+}
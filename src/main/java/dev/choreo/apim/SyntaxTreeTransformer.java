@@ -49,7 +49,10 @@ public class SyntaxTreeTransformer extends NodeVisitor {
     public TextDocumentChange modifyDoc(Document document, CodeGenerator codegen) {
         this.edits = new ArrayList<>();
         this.codegen = codegen;
-        visitNode(document.syntaxTree().rootNode());
+        Node rootNode = document.syntaxTree().rootNode();
+        visitNode(rootNode);
+        this.edits.add(TextEdit.from(TextRange.from(rootNode.textRange().endOffset(), 0),
+                                     codegen.generateModuleMembers()));
         this.edits.add(0, TextEdit.from(START_POS, codegen.generateImports()));
         return TextDocumentChange.from(this.edits.toArray(new TextEdit[0]));
     }
@@ -113,7 +116,7 @@ public class SyntaxTreeTransformer extends NodeVisitor {
         String medCtx = this.codegen.generateMediationContextRecord(this.ctx);
         edits.add(TextEdit.from(start, medCtx));
 
-        String code = this.codegen.generateDoBlock(this.ctx, nTabs);
+        String code = this.codegen.generateMediation(this.ctx, nTabs);
         edits.add(TextEdit.from(start, code));
     }
 
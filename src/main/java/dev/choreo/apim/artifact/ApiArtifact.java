@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim.artifact;
+
+import dev.choreo.apim.artifact.model.APIYaml;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.representer.Representer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * An API artifact, indexed once when opened so that its entries can be looked up by their path relative to the
+ * artifact root (e.g., {@code api.yaml}, {@code Definitions/swagger.yaml}). The artifact can be a zip file, a tar.gz
+ * file or an exploded directory.
+ */
+public interface ApiArtifact extends AutoCloseable {
+
+    String API_YAML = "api.yaml";
+    String OPENAPI_DEFINITION = "Definitions/swagger.yaml";
+
+    static ApiArtifact open(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            return new DirectoryApiArtifact(path);
+        }
+
+        String fileName = path.getFileName().toString();
+        if (fileName.endsWith(".tar.gz") || fileName.endsWith(".tgz")) {
+            try (InputStream in = Files.newInputStream(path)) {
+                return InMemoryApiArtifact.fromTarGz(fileName, in);
+            }
+        }
+
+        return new ZipApiArtifact(path);
+    }
+
+    /**
+     * Reads an artifact from the bytes of a zip file.
+     */
+    static ApiArtifact fromZip(String name, byte[] zipContent) throws IOException {
+        return InMemoryApiArtifact.fromZip(name, zipContent);
+    }
+
+    String name();
+
+    Set<String> entries();
+
+    boolean contains(String entry);
+
+    /**
+     * Opens the given entry for reading.
+     *
+     * @param entry Path of the entry relative to the artifact root
+     * @throws ArtifactEntryNotFoundException If the artifact doesn't have the entry
+     */
+    InputStream open(String entry) throws IOException;
+
+    /**
+     * Reads the API metadata from the {@code api.yaml} file of the artifact.
+     */
+    default APIYaml apiYaml() throws IOException {
+        Representer representer = new Representer();
+        representer.getPropertyUtils().setSkipMissingProperties(true);
+        Yaml yaml = new Yaml(representer);
+
+        try (InputStream in = open(API_YAML)) {
+            return yaml.loadAs(in, APIYaml.class);
+        }
+    }
+
+    default byte[] read(String entry) throws IOException {
+        try (InputStream in = open(entry)) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Override
+    void close() throws IOException;
+}
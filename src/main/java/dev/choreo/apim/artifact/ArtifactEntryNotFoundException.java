@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim.artifact;
+
+import dev.choreo.apim.utils.MediationCodeGenException;
+
+public class ArtifactEntryNotFoundException extends MediationCodeGenException {
+    public ArtifactEntryNotFoundException(String artifact, String entry) {
+        super(String.format("'%s' file not found in the API artifact '%s'", entry, artifact));
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim.artifact;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+final class ArtifactIndex {
+
+    private static final String MACOS_METADATA_DIR = "__MACOSX/";
+
+    private ArtifactIndex() {
+    }
+
+    /**
+     * Re-keys the given entries by their path relative to the artifact root. Artifacts are usually archived with the
+     * API directory at the top (e.g., {@code PizzaShackAPI/api.yaml}), in which case that directory is stripped. The
+     * root is the directory of the top-most {@code api.yaml}, or the single top-level directory if there is none.
+     * Metadata added by archivers (e.g., the {@code __MACOSX} directory of zips created on macOS) is left out.
+     */
+    static <T> Map<String, T> relativize(Map<String, T> entries) {
+        Map<String, T> normalized = new HashMap<>();
+        entries.forEach((name, value) -> {
+            String path = normalize(name);
+
+            if (!isArchiveMetadata(path)) {
+                normalized.put(path, value);
+            }
+        });
+
+        String root = findRoot(normalized.keySet());
+        Map<String, T> index = new HashMap<>();
+        normalized.forEach((name, value) -> {
+            if (name.startsWith(root)) {
+                index.put(name.substring(root.length()), value);
+            }
+        });
+        return index;
+    }
+
+    private static String findRoot(Set<String> names) {
+        String apiYaml = null;
+
+        for (String name : names) {
+            if ((name.equals(ApiArtifact.API_YAML) || name.endsWith("/" + ApiArtifact.API_YAML))
+                    && (apiYaml == null || name.length() < apiYaml.length())) {
+                apiYaml = name;
+            }
+        }
+
+        if (apiYaml != null) {
+            return apiYaml.substring(0, apiYaml.length() - ApiArtifact.API_YAML.length());
+        }
+
+        Set<String> roots = new HashSet<>();
+
+        for (String name : names) {
+            int separator = name.indexOf('/');
+
+            if (separator < 0) {
+                return "";
+            }
+            roots.add(name.substring(0, separator + 1));
+        }
+
+        return roots.size() == 1 ? roots.iterator().next() : "";
+    }
+
+    private static boolean isArchiveMetadata(String name) {
+        String fileName = name.substring(name.lastIndexOf('/') + 1);
+        return name.startsWith(MACOS_METADATA_DIR) || fileName.startsWith("._") || fileName.equals(".DS_Store");
+    }
+
+    private static String normalize(String name) {
+        String normalized = name.replace('\\', '/');
+
+        while (normalized.startsWith("./") || normalized.startsWith("/")) {
+            normalized = normalized.substring(normalized.startsWith("/") ? 1 : 2);
+        }
+
+        return normalized;
+    }
+}
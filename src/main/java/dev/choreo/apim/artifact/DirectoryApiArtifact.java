@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim.artifact;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * An exploded artifact directory. The files are memory-mapped when read.
+ */
+class DirectoryApiArtifact implements ApiArtifact {
+
+    private final Path root;
+    private final Map<String, Path> index;
+
+    DirectoryApiArtifact(Path root) throws IOException {
+        this.root = root;
+
+        try (Stream<Path> files = Files.walk(root)) {
+            this.index = ArtifactIndex.relativize(
+                    files.filter(Files::isRegularFile)
+                            .collect(Collectors.toMap(file -> root.relativize(file).toString(), Function.identity())));
+        }
+    }
+
+    @Override
+    public String name() {
+        return this.root.toString();
+    }
+
+    @Override
+    public Set<String> entries() {
+        return Collections.unmodifiableSet(this.index.keySet());
+    }
+
+    @Override
+    public boolean contains(String entry) {
+        return this.index.containsKey(entry);
+    }
+
+    @Override
+    public InputStream open(String entry) throws IOException {
+        Path file = this.index.get(entry);
+
+        if (file == null) {
+            throw new ArtifactEntryNotFoundException(name(), entry);
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() == 0) {
+                return new ByteArrayInputStream(new byte[0]);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new ByteBufferInputStream(buffer);
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!this.buffer.hasRemaining()) {
+                return -1;
+            }
+
+            int n = Math.min(len, this.buffer.remaining());
+            this.buffer.get(bytes, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return this.buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim.artifact;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * An artifact whose entries are held in memory. Used for archives which have to be streamed through anyway (i.e.,
+ * tar.gz files and zip files received as bytes), so that they don't have to be extracted to a temp directory.
+ */
+class InMemoryApiArtifact implements ApiArtifact {
+
+    private static final int TAR_BLOCK_SIZE = 512;
+
+    private final String name;
+    private final Map<String, byte[]> index;
+
+    private InMemoryApiArtifact(String name, Map<String, byte[]> entries) {
+        this.name = name;
+        this.index = ArtifactIndex.relativize(entries);
+    }
+
+    static InMemoryApiArtifact fromZip(String name, byte[] zipContent) throws IOException {
+        Map<String, byte[]> entries = new HashMap<>();
+
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zipContent))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                if (!entry.isDirectory()) {
+                    entries.put(entry.getName(), in.readAllBytes());
+                }
+            }
+        }
+
+        return new InMemoryApiArtifact(name, entries);
+    }
+
+    static InMemoryApiArtifact fromTarGz(String name, InputStream tarGzStream) throws IOException {
+        Map<String, byte[]> entries = new HashMap<>();
+        InputStream in = new GZIPInputStream(tarGzStream);
+        byte[] header = new byte[TAR_BLOCK_SIZE];
+        String longName = null;
+
+        while (readBlock(in, header)) {
+            if (isZeroBlock(header)) {
+                break;
+            }
+
+            String entryName = longName != null ? longName : tarEntryName(header);
+            longName = null;
+            long size = parseOctal(header, 124, 12);
+            char type = (char) header[156];
+            byte[] content = in.readNBytes((int) size);
+
+            if (content.length != size) {
+                throw new IOException("Unexpected end of the tar archive: " + name);
+            }
+            in.readNBytes((int) ((TAR_BLOCK_SIZE - size % TAR_BLOCK_SIZE) % TAR_BLOCK_SIZE));
+
+            if (type == 'L') {
+                // GNU long name: the content is the name of the next entry
+                longName = new String(content, StandardCharsets.UTF_8).trim();
+            } else if (type == '0' || type == '\0') {
+                entries.put(entryName, content);
+            }
+        }
+
+        return new InMemoryApiArtifact(name, entries);
+    }
+
+    @Override
+    public String name() {
+        return this.name;
+    }
+
+    @Override
+    public Set<String> entries() {
+        return Collections.unmodifiableSet(this.index.keySet());
+    }
+
+    @Override
+    public boolean contains(String entry) {
+        return this.index.containsKey(entry);
+    }
+
+    @Override
+    public InputStream open(String entry) {
+        byte[] content = this.index.get(entry);
+
+        if (content == null) {
+            throw new ArtifactEntryNotFoundException(this.name, entry);
+        }
+
+        return new ByteArrayInputStream(content);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private static boolean readBlock(InputStream in, byte[] block) throws IOException {
+        return in.readNBytes(block, 0, block.length) == block.length;
+    }
+
+    private static boolean isZeroBlock(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String tarEntryName(byte[] header) {
+        String name = readString(header, 0, 100);
+        // The name prefix field is only there in the ustar format
+        String prefix = readString(header, 257, 5).equals("ustar") ? readString(header, 345, 155) : "";
+        return prefix.isEmpty() ? name : prefix + "/" + name;
+    }
+
+    private static String readString(byte[] header, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static long parseOctal(byte[] header, int offset, int length) {
+        String value = readString(header, offset, length).trim();
+        return value.isEmpty() ? 0 : Long.parseLong(value, 8);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim.artifact;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A zip artifact. The central directory is read once when the artifact is opened and the zip file is kept open
+ * until the artifact is closed.
+ */
+class ZipApiArtifact implements ApiArtifact {
+
+    private final String name;
+    private final ZipFile zipFile;
+    private final Map<String, ZipEntry> index;
+
+    ZipApiArtifact(Path path) throws IOException {
+        this.name = path.toString();
+        this.zipFile = new ZipFile(path.toFile());
+        Map<String, ZipEntry> entries = new HashMap<>();
+        Enumeration<? extends ZipEntry> zipEntries = this.zipFile.entries();
+
+        while (zipEntries.hasMoreElements()) {
+            ZipEntry entry = zipEntries.nextElement();
+            if (!entry.isDirectory()) {
+                entries.put(entry.getName(), entry);
+            }
+        }
+
+        this.index = ArtifactIndex.relativize(entries);
+    }
+
+    @Override
+    public String name() {
+        return this.name;
+    }
+
+    @Override
+    public Set<String> entries() {
+        return Collections.unmodifiableSet(this.index.keySet());
+    }
+
+    @Override
+    public boolean contains(String entry) {
+        return this.index.containsKey(entry);
+    }
+
+    @Override
+    public InputStream open(String entry) throws IOException {
+        ZipEntry zipEntry = this.index.get(entry);
+
+        if (zipEntry == null) {
+            throw new ArtifactEntryNotFoundException(this.name, entry);
+        }
+
+        return this.zipFile.getInputStream(zipEntry);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.zipFile.close();
+    }
+}
@@ -18,15 +18,80 @@
 
 package dev.choreo.apim.artifact.model;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class EndpointConfig {
 
-    private Endpoint production_endpoints;
+    public static final String HTTP = "http";
+    public static final String LOAD_BALANCE = "load_balance";
+    public static final String FAILOVER = "failover";
+
+    // One of http, load_balance or failover
+    private String endpoint_type = HTTP;
+    // A single endpoint or, for the load_balance endpoint type, a list of endpoints (i.e., mappings with a url)
+    private Object production_endpoints;
+    private Object sandbox_endpoints;
+    // The endpoints to fail over to, in order, for the failover endpoint type
+    private List<Endpoint> production_failovers = new ArrayList<>();
+    private List<Endpoint> sandbox_failovers = new ArrayList<>();
+    // "True" or "False", for the load_balance endpoint type: whether to try the next endpoint on a connection error
+    private String failOver;
+    private ClientConfig client_config = new ClientConfig();
+
+    public String getEndpoint_type() {
+        return endpoint_type;
+    }
 
-    public Endpoint getProduction_endpoints() {
+    public void setEndpoint_type(String endpoint_type) {
+        this.endpoint_type = endpoint_type;
+    }
+
+    public Object getProduction_endpoints() {
         return production_endpoints;
     }
 
-    public void setProduction_endpoints(Endpoint production_endpoints) {
+    public void setProduction_endpoints(Object production_endpoints) {
         this.production_endpoints = production_endpoints;
     }
+
+    public Object getSandbox_endpoints() {
+        return sandbox_endpoints;
+    }
+
+    public void setSandbox_endpoints(Object sandbox_endpoints) {
+        this.sandbox_endpoints = sandbox_endpoints;
+    }
+
+    public List<Endpoint> getProduction_failovers() {
+        return production_failovers;
+    }
+
+    public void setProduction_failovers(List<Endpoint> production_failovers) {
+        this.production_failovers = production_failovers;
+    }
+
+    public List<Endpoint> getSandbox_failovers() {
+        return sandbox_failovers;
+    }
+
+    public void setSandbox_failovers(List<Endpoint> sandbox_failovers) {
+        this.sandbox_failovers = sandbox_failovers;
+    }
+
+    public String getFailOver() {
+        return failOver;
+    }
+
+    public void setFailOver(String failOver) {
+        this.failOver = failOver;
+    }
+
+    public ClientConfig getClient_config() {
+        return client_config;
+    }
+
+    public void setClient_config(ClientConfig client_config) {
+        this.client_config = client_config;
+    }
 }
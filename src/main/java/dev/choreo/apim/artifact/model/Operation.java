@@ -26,6 +26,9 @@ public class Operation {
     private String target;
     private String verb;
     private AttachedPolicies operationPolicies = new AttachedPolicies();
+    // Whether the operation is meant for payloads which must not be buffered, which restricts its policies
+    private boolean streaming;
+    private ResponseCacheConfig responseCache;
 
     public String getId() {
         return id;
@@ -58,4 +61,20 @@ public class Operation {
     public void setOperationPolicies(AttachedPolicies operationPolicies) {
         this.operationPolicies = operationPolicies;
     }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public ResponseCacheConfig getResponseCache() {
+        return responseCache;
+    }
+
+    public void setResponseCache(ResponseCacheConfig responseCache) {
+        this.responseCache = responseCache;
+    }
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim.artifact.model;
+
+import java.math.BigDecimal;
+
+/**
+ * The connection pool settings of the backend client. A negative number of active connections means no limit.
+ */
+public class PoolConfig {
+
+    private int maxActiveConnections = -1;
+    private int maxIdleConnections = 100;
+    private BigDecimal waitTime = new BigDecimal(30);
+    private int maxActiveStreamsPerConnection = 100;
+
+    public int getMaxActiveConnections() {
+        return maxActiveConnections;
+    }
+
+    public void setMaxActiveConnections(int maxActiveConnections) {
+        this.maxActiveConnections = maxActiveConnections;
+    }
+
+    public int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+
+    public void setMaxIdleConnections(int maxIdleConnections) {
+        this.maxIdleConnections = maxIdleConnections;
+    }
+
+    public BigDecimal getWaitTime() {
+        return waitTime;
+    }
+
+    public void setWaitTime(BigDecimal waitTime) {
+        this.waitTime = waitTime;
+    }
+
+    public int getMaxActiveStreamsPerConnection() {
+        return maxActiveStreamsPerConnection;
+    }
+
+    public void setMaxActiveStreamsPerConnection(int maxActiveStreamsPerConnection) {
+        this.maxActiveStreamsPerConnection = maxActiveStreamsPerConnection;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim.profiling;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * A phase of a generation run being measured. The CPU time and the allocated bytes are that of the thread which
+ * started the phase. As such, work done in subprocesses (e.g., {@code bal openapi}) only contributes to the wall
+ * time.
+ */
+public class Phase implements AutoCloseable {
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final ThreadLocal<Integer> DEPTH = ThreadLocal.withInitial(() -> 0);
+
+    private final GenerationProfile profile;
+    private final String name;
+    private final String detail;
+    private final int depth;
+    private final GenerationPhaseEvent event;
+    private final long startWall;
+    private final long startCpu;
+    private final long startAllocated;
+
+    Phase(GenerationProfile profile, String artifact, String name, String detail) {
+        this.profile = profile;
+        this.name = name;
+        this.detail = detail;
+        this.depth = DEPTH.get();
+        DEPTH.set(this.depth + 1);
+        this.event = new GenerationPhaseEvent(artifact, name, detail);
+        this.event.begin();
+        this.startWall = System.nanoTime();
+        this.startCpu = cpuTime();
+        this.startAllocated = allocatedBytes();
+    }
+
+    @Override
+    public void close() {
+        long wall = System.nanoTime() - this.startWall;
+        long cpu = cpuTime() - this.startCpu;
+        long allocated = allocatedBytes() - this.startAllocated;
+        DEPTH.set(this.depth);
+
+        this.event.end();
+        if (this.event.shouldCommit()) {
+            this.event.cpuTime = cpu;
+            this.event.allocated = allocated;
+            this.event.commit();
+        }
+
+        if (this.profile != null) {
+            this.profile.record(new PhaseRecord(this.name, this.detail, this.depth, wall, cpu, allocated));
+        }
+    }
+
+    private static long cpuTime() {
+        return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : 0;
+    }
+
+    private static long allocatedBytes() {
+        return THREAD_MX_BEAN.isThreadAllocatedMemorySupported() ?
+                THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim.profiling;
+
+public class PhaseRecord {
+
+    private final String name;
+    private final String detail;
+    private final int depth;
+    private final double wallMillis;
+    private final double cpuMillis;
+    private final long allocatedBytes;
+
+    PhaseRecord(String name, String detail, int depth, long wallNanos, long cpuNanos, long allocatedBytes) {
+        this.name = name;
+        this.detail = detail;
+        this.depth = depth;
+        this.wallMillis = wallNanos / 1_000_000.0;
+        this.cpuMillis = cpuNanos / 1_000_000.0;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String detail() {
+        return detail;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    public double wallMillis() {
+        return wallMillis;
+    }
+
+    public double cpuMillis() {
+        return cpuMillis;
+    }
+
+    public long allocatedBytes() {
+        return allocatedBytes;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim.repos;
+
+import dev.choreo.apim.PackageID;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+final class BalaArchives {
+
+    private static final String DEFAULT_PLATFORM = "any";
+
+    private BalaArchives() {
+    }
+
+    /**
+     * Extracts a bala to the bala cache. The bala is first extracted to a temp directory in the package directory
+     * (i.e., next to the version directory) and then moved to its final location, so that other generator processes
+     * never see a partially extracted bala.
+     */
+    static void extract(InputStream bala, PackageID id, String platform, Path balaCache) throws IOException {
+        Path packageDir = balaCache.resolve(id.org()).resolve(id.name());
+        Files.createDirectories(packageDir);
+        Path tempDir = Files.createTempDirectory(packageDir, ".pull-" + id.version() + "-");
+        Path versionDir = packageDir.resolve(id.version());
+
+        try {
+            try (ZipInputStream zip = new ZipInputStream(bala)) {
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null) {
+                    Path target = tempDir.resolve(entry.getName()).normalize();
+
+                    if (!target.startsWith(tempDir)) {
+                        throw new IOException("Invalid entry in the bala of " + id + ": " + entry.getName());
+                    }
+
+                    if (entry.isDirectory()) {
+                        Files.createDirectories(target);
+                    } else {
+                        Files.createDirectories(target.getParent());
+                        Files.copy(zip, target);
+                    }
+                }
+            }
+
+            Files.createDirectories(versionDir);
+            moveIntoPlace(tempDir, versionDir.resolve(platform));
+        } finally {
+            deleteDirectory(tempDir);
+        }
+    }
+
+    /**
+     * Derives the platform from the name of a bala file (i.e., {@code <org>-<name>-<platform>-<version>.bala}).
+     */
+    static String platformOf(String balaFileName, PackageID id) {
+        String prefix = id.org() + "-" + id.name() + "-";
+        String suffix = "-" + id.version() + ".bala";
+
+        if (balaFileName != null && balaFileName.startsWith(prefix) && balaFileName.endsWith(suffix)
+                && balaFileName.length() > prefix.length() + suffix.length()) {
+            return balaFileName.substring(prefix.length(), balaFileName.length() - suffix.length());
+        }
+
+        return DEFAULT_PLATFORM;
+    }
+
+    private static void moveIntoPlace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Pulled by another process in the meantime
+        } catch (AtomicMoveNotSupportedException e) {
+            if (!Files.exists(target)) {
+                Files.move(source, target);
+            }
+        } catch (IOException e) {
+            // On some platforms, an atomic move onto a non-empty directory fails with a generic error
+            if (!Files.exists(target)) {
+                throw e;
+            }
+        }
+    }
+
+    static void deleteDirectory(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+}
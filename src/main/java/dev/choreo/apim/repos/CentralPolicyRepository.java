@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim.repos;
+
+import dev.choreo.apim.PackageID;
+import dev.choreo.apim.utils.MediationCodeGenException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Pulls policy packages from Ballerina Central over its REST API, within the generator process.
+ */
+public class CentralPolicyRepository implements PolicyRepository {
+
+    public static final String DEFAULT_URL = "https://api.central.ballerina.io/2.0/registry";
+    private static final Pattern FILE_NAME = Pattern.compile("filename=\"?([^\";]+)\"?");
+
+    private final String baseUrl;
+    private final HttpClient client;
+
+    public CentralPolicyRepository(String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.client = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    @Override
+    public void pull(PackageID id, Path balaCache) throws IOException {
+        URI uri = URI.create(String.format("%s/packages/%s/%s/%s", this.baseUrl, id.org(), id.name(), id.version()));
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Accept", "application/octet-stream")
+                .header("Accept-Encoding", "identity")
+                .header("User-Agent", "proxy-generator")
+                .GET()
+                .build();
+        HttpResponse<InputStream> response;
+
+        try {
+            response = this.client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while pulling " + id, e);
+        }
+
+        try (InputStream body = response.body()) {
+            if (response.statusCode() == 404) {
+                throw new MediationCodeGenException("Policy package not found in Central: " + id);
+            }
+
+            if (response.statusCode() != 200) {
+                throw new IOException(String.format("Failed to pull %s from Central: HTTP %d", id,
+                                                    response.statusCode()));
+            }
+
+            String platform = BalaArchives.platformOf(balaFileName(response).orElse(null), id);
+            BalaArchives.extract(body, id, platform, balaCache);
+        }
+    }
+
+    private static Optional<String> balaFileName(HttpResponse<?> response) {
+        Optional<String> disposition = response.headers().firstValue("Content-Disposition");
+
+        if (disposition.isPresent()) {
+            Matcher matcher = FILE_NAME.matcher(disposition.get());
+            if (matcher.find()) {
+                return Optional.of(matcher.group(1));
+            }
+        }
+
+        String path = response.uri().getPath();
+        return Optional.of(path.substring(path.lastIndexOf('/') + 1));
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim.repos;
+
+import dev.choreo.apim.PackageID;
+import dev.choreo.apim.utils.MediationCodeGenException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A policy repository on the local file system. Serves as a stand-in for Central (e.g., for tests and for mirrors
+ * in environments without access to Central). The balas are looked up in the root directory as the files
+ * downloaded from Central (i.e., {@code <org>-<name>-<platform>-<version>.bala}).
+ */
+public class FileSystemPolicyRepository implements PolicyRepository {
+
+    private final Path root;
+
+    public FileSystemPolicyRepository(Path root) {
+        this.root = root;
+    }
+
+    @Override
+    public void pull(PackageID id, Path balaCache) throws IOException {
+        String glob = String.format("%s-%s-*-%s.bala", id.org(), id.name(), id.version());
+
+        try (DirectoryStream<Path> balas = Files.newDirectoryStream(this.root, glob)) {
+            for (Path bala : balas) {
+                try (InputStream in = Files.newInputStream(bala)) {
+                    BalaArchives.extract(in, id, BalaArchives.platformOf(bala.getFileName().toString(), id),
+                                         balaCache);
+                }
+                return;
+            }
+        }
+
+        throw new MediationCodeGenException(String.format("Policy package %s not found in %s", id, this.root));
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim.repos;
+
+import com.google.gson.Gson;
+import dev.choreo.apim.PackageID;
+import dev.choreo.apim.PolicyDescriptor;
+import dev.choreo.apim.utils.MediationCodeGenException;
+import dev.choreo.apim.utils.Utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A single-file bundle of policy balas, for generating without access to Central or a warm bala cache. The bundle
+ * starts with a header and a JSON index of the packages in it, followed by the balas themselves:
+ * <pre>
+ *   "PLCYBNDL" | format version (int) | index length (int) | index | balas
+ * </pre>
+ * The bundle is memory-mapped and the packages are looked up through the index, so opening a bundle only costs
+ * reading its index. The index may also carry the precomputed descriptors of the packages, in which case the
+ * packages never need to be compiled.
+ */
+public class PolicyBundle implements Closeable {
+
+    static final byte[] MAGIC = "PLCYBNDL".getBytes(StandardCharsets.US_ASCII);
+    static final int FORMAT_VERSION = 1;
+    static final Gson GSON = new Gson();
+
+    private final Path path;
+    private final ByteBuffer balas;
+    private final Map<PackageID, Entry> index;
+    private final Map<PackageID, Path> balaFiles = new ConcurrentHashMap<>();
+    private Path stagingDir;
+
+    private PolicyBundle(Path path, ByteBuffer balas, Map<PackageID, Entry> index) {
+        this.path = path;
+        this.balas = balas;
+        this.index = index;
+    }
+
+    public static PolicyBundle open(Path path) throws IOException {
+        MappedByteBuffer buffer;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Policy bundle too large: " + path);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        byte[] magic = new byte[MAGIC.length];
+
+        if (buffer.remaining() < magic.length + 2 * Integer.BYTES) {
+            throw new MediationCodeGenException("Not a policy bundle: " + path);
+        }
+
+        buffer.get(magic);
+
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new MediationCodeGenException("Not a policy bundle: " + path);
+        }
+
+        int formatVersion = buffer.getInt();
+
+        if (formatVersion != FORMAT_VERSION) {
+            throw new MediationCodeGenException(
+                    String.format("Unsupported policy bundle format version %d: %s", formatVersion, path));
+        }
+
+        int indexLength = buffer.getInt();
+
+        if (indexLength < 0 || indexLength > buffer.remaining()) {
+            throw new MediationCodeGenException("Truncated policy bundle: " + path);
+        }
+
+        byte[] indexBytes = new byte[indexLength];
+        buffer.get(indexBytes);
+
+        Index index = GSON.fromJson(new String(indexBytes, StandardCharsets.UTF_8), Index.class);
+        ByteBuffer balas = buffer.slice();
+        Map<PackageID, Entry> entries = new HashMap<>();
+
+        for (Entry entry : index.packages) {
+            if (entry.offset < 0 || entry.size < 0 || entry.offset + entry.size > balas.capacity()) {
+                throw new MediationCodeGenException(String.format("Corrupted policy bundle entry for %s/%s:%s: %s",
+                                                                  entry.org, entry.name, entry.version, path));
+            }
+            entries.put(PackageID.from(entry.org + "/" + entry.name, entry.version), entry);
+        }
+
+        return new PolicyBundle(path, balas, entries);
+    }
+
+    public Path path() {
+        return this.path;
+    }
+
+    public Set<PackageID> packages() {
+        return Collections.unmodifiableSet(this.index.keySet());
+    }
+
+    public boolean contains(PackageID id) {
+        return this.index.containsKey(id);
+    }
+
+    /**
+     * The SHA-256 checksum of the bala of the given package.
+     */
+    public String getChecksum(PackageID id) {
+        return getEntry(id).sha256;
+    }
+
+    /**
+     * The descriptor of the given package, if it was precomputed when the bundle was built.
+     */
+    public Optional<PolicyDescriptor> getDescriptor(PackageID id) {
+        return Optional.ofNullable(getEntry(id).descriptor);
+    }
+
+    /**
+     * Returns the contents of the bala of the given package, without copying it out of the bundle.
+     */
+    public ByteBuffer read(PackageID id) {
+        Entry entry = getEntry(id);
+        ByteBuffer bala = this.balas.duplicate();
+        bala.position((int) entry.offset).limit((int) (entry.offset + entry.size));
+        return bala.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a bala file of the given package, for the Ballerina project APIs which only load packages from the file
+     * system. The bala is copied out of the bundle as is (i.e., without unpacking it) to a staging directory, the
+     * first time it is requested, after checking it against the checksum in the index.
+     */
+    public Path balaFile(PackageID id) throws IOException {
+        Path balaFile = this.balaFiles.get(id);
+
+        if (balaFile != null) {
+            return balaFile;
+        }
+
+        synchronized (this) {
+            balaFile = this.balaFiles.get(id);
+
+            if (balaFile == null) {
+                balaFile = stage(id);
+                this.balaFiles.put(id, balaFile);
+            }
+        }
+
+        return balaFile;
+    }
+
+    private Path stage(PackageID id) throws IOException {
+        Entry entry = getEntry(id);
+        ByteBuffer bala = read(id);
+
+        if (!sha256(bala.duplicate()).equals(entry.sha256)) {
+            throw new MediationCodeGenException(String.format("Checksum mismatch for %s in %s", id, this.path));
+        }
+
+        if (this.stagingDir == null) {
+            this.stagingDir = Files.createTempDirectory("policy-bundle-");
+            this.stagingDir.toFile().deleteOnExit();
+        }
+
+        Path balaFile = this.stagingDir.resolve(
+                String.format("%s-%s-%s-%s.bala", id.org(), id.name(), entry.platform, id.version()));
+
+        try (FileChannel out = FileChannel.open(balaFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            while (bala.hasRemaining()) {
+                out.write(bala);
+            }
+        }
+
+        balaFile.toFile().deleteOnExit();
+        return balaFile;
+    }
+
+    private Entry getEntry(PackageID id) {
+        Entry entry = this.index.get(id);
+
+        if (entry == null) {
+            throw new MediationCodeGenException(String.format("Policy package %s not found in %s", id, this.path));
+        }
+
+        return entry;
+    }
+
+    static String sha256(ByteBuffer data) {
+        MessageDigest digest = Utils.newSha256Digest();
+        digest.update(data);
+        return Utils.toHex(digest.digest());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.stagingDir != null) {
+            BalaArchives.deleteDirectory(this.stagingDir);
+            this.stagingDir = null;
+            this.balaFiles.clear();
+        }
+    }
+
+    static class Index {
+        List<Entry> packages;
+    }
+
+    static class Entry {
+        String org;
+        String name;
+        String version;
+        String platform;
+        long offset;
+        long size;
+        String sha256;
+        PolicyDescriptor descriptor;
+    }
+}
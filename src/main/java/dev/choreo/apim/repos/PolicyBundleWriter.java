@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim.repos;
+
+import dev.choreo.apim.PackageID;
+import dev.choreo.apim.PolicyDescriptor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes a {@link PolicyBundle}.
+ */
+public class PolicyBundleWriter {
+
+    private final Map<PackageID, PolicyBundle.Entry> entries = new LinkedHashMap<>();
+    private final List<byte[]> balas = new ArrayList<>();
+    private long size;
+
+    /**
+     * Adds a package to the bundle, given its extracted bala directory (e.g., a
+     * {@code <org>/<name>/<version>/<platform>} directory of the bala cache).
+     */
+    public PolicyBundleWriter addBalaDirectory(PackageID id, Path balaDir, PolicyDescriptor descriptor)
+            throws IOException {
+        return addBala(id, balaDir.getFileName().toString(), pack(balaDir), descriptor);
+    }
+
+    /**
+     * @param descriptor The descriptor of the package. May be null, in which case the package will be compiled when
+     *                   it is loaded from the bundle.
+     */
+    public PolicyBundleWriter addBala(PackageID id, String platform, byte[] bala, PolicyDescriptor descriptor) {
+        if (this.entries.containsKey(id)) {
+            return this;
+        }
+
+        PolicyBundle.Entry entry = new PolicyBundle.Entry();
+        entry.org = id.org();
+        entry.name = id.name();
+        entry.version = id.version();
+        entry.platform = platform;
+        entry.offset = this.size;
+        entry.size = bala.length;
+        entry.sha256 = PolicyBundle.sha256(ByteBuffer.wrap(bala));
+        entry.descriptor = descriptor;
+
+        this.entries.put(id, entry);
+        this.balas.add(bala);
+        this.size += bala.length;
+        return this;
+    }
+
+    public void write(Path bundlePath) throws IOException {
+        PolicyBundle.Index index = new PolicyBundle.Index();
+        index.packages = new ArrayList<>(this.entries.values());
+        byte[] indexBytes = PolicyBundle.GSON.toJson(index).getBytes(StandardCharsets.UTF_8);
+        Path tempFile = Files.createTempFile(bundlePath.toAbsolutePath().getParent(), ".bundle-", ".tmp");
+
+        try {
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(tempFile))) {
+                out.write(PolicyBundle.MAGIC);
+                out.writeInt(PolicyBundle.FORMAT_VERSION);
+                out.writeInt(indexBytes.length);
+                out.write(indexBytes);
+                for (byte[] bala : this.balas) {
+                    out.write(bala);
+                }
+            }
+            Files.move(tempFile, bundlePath, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static byte[] pack(Path balaDir) throws IOException {
+        ByteArrayOutputStream bala = new ByteArrayOutputStream();
+        List<Path> files;
+
+        try (Stream<Path> paths = Files.walk(balaDir)) {
+            files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+
+        try (ZipOutputStream zip = new ZipOutputStream(bala)) {
+            for (Path file : files) {
+                ZipEntry entry = new ZipEntry(balaDir.relativize(file).toString().replace('\\', '/'));
+                // Fixed timestamps, so that the same policies always result in the same bundle
+                entry.setTime(0);
+                zip.putNextEntry(entry);
+                Files.copy(file, zip);
+                zip.closeEntry();
+            }
+        }
+
+        return bala.toByteArray();
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim.repos;
+
+import dev.choreo.apim.PackageID;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * A repository policy packages can be pulled from.
+ */
+public interface PolicyRepository {
+
+    /**
+     * Fetches the bala of the given package to the given bala cache. The bala is extracted to the
+     * {@code <org>/<name>/<version>/<platform>} directory of the cache.
+     */
+    void pull(PackageID id, Path balaCache) throws IOException;
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.choreo.apim.ProxyGenerator;
+import dev.choreo.apim.artifact.ApiArtifact;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A long-lived generator which keeps the Ballerina compiler and the loaded policy packages warm between generation
+ * requests. The server listens on the loopback interface and exposes the following endpoints:
+ * <ul>
+ *     <li>{@code POST /generate} - Takes the API artifact zip as the request body and responds with the generated
+ *     {@code proxy_service.bal}. If the {@code output=project} query param is present, the whole generated project
+ *     is sent back as a zip.</li>
+ *     <li>{@code GET /health} - Liveness check</li>
+ *     <li>{@code GET /metrics} - Request and policy cache metrics in the Prometheus text format</li>
+ * </ul>
+ * The artifact is read in memory and each request is generated in a work directory of its own, with a fresh code
+ * generator, so requests can be processed concurrently.
+ */
+public class GeneratorServer {
+
+    private static final String SERVICE_FILE = "proxy_service.bal";
+    private static final int DEFAULT_PORT = 9797;
+
+    private final ProxyGenerator generator;
+    private final ServerMetrics metrics;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public GeneratorServer(ProxyGenerator generator, int port, int nWorkers) throws IOException {
+        this.generator = generator;
+        this.metrics = new ServerMetrics(generator.getPolicyManager());
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = Executors.newFixedThreadPool(nWorkers);
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/generate", this::handleGenerate);
+        this.server.createContext("/health", this::handleHealth);
+        this.server.createContext("/metrics", this::handleMetrics);
+    }
+
+    /**
+     * Usage: {@code GeneratorServer <bal home> [<port>] [<no. of workers>]}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            throw new IllegalArgumentException("Usage: GeneratorServer <bal home> [<port>] [<no. of workers>]");
+        }
+
+        // Needs to be the actual bal distribution. e.g., ballerina-2201.0.0-swan-lake/distributions/ballerina-2201.0.3
+        System.setProperty("ballerina.home", args[0]);
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+        int nWorkers = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        GeneratorServer server = new GeneratorServer(ProxyGenerator.create(Paths.get(args[0])), port, nWorkers);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        server.start();
+        System.out.printf("Proxy generator listening on %s%n", server.server.getAddress());
+    }
+
+    public void start() {
+        this.server.start();
+    }
+
+    public void stop() {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+
+    public ServerMetrics metrics() {
+        return this.metrics;
+    }
+
+    private void handleGenerate(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            sendResponse(exchange, 405, "text/plain", "Method not allowed\n".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
+        String query = exchange.getRequestURI().getQuery();
+        boolean projectOutput = query != null && List.of(query.split("&")).contains("output=project");
+        long start = System.currentTimeMillis();
+        this.metrics.requestStarted();
+        Path workDir = null;
+        boolean success = false;
+
+        try {
+            byte[] artifactContent;
+            try (InputStream body = exchange.getRequestBody()) {
+                artifactContent = body.readAllBytes();
+            }
+
+            workDir = Files.createTempDirectory("proxygen-");
+            Path projectPath;
+            try (ApiArtifact artifact = ApiArtifact.fromZip("request-" + this.metrics.requestCount(),
+                                                             artifactContent)) {
+                projectPath = this.generator.generate(artifact, workDir);
+            }
+
+            byte[] payload = projectOutput ? zipDirectory(projectPath) :
+                    Files.readAllBytes(projectPath.resolve(SERVICE_FILE));
+            success = true;
+            sendResponse(exchange, 200, projectOutput ? "application/zip" : "text/plain", payload);
+        } catch (Exception | AssertionError e) {
+            String msg = String.format("Generation failed: %s%n", e);
+            sendResponse(exchange, 500, "text/plain", msg.getBytes(StandardCharsets.UTF_8));
+        } finally {
+            this.metrics.requestCompleted(System.currentTimeMillis() - start, success);
+            if (workDir != null) {
+                deleteDirectory(workDir);
+            }
+        }
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        sendResponse(exchange, 200, "text/plain", "OK\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        sendResponse(exchange, 200, "text/plain; version=0.0.4",
+                     this.metrics.render().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void sendResponse(HttpExchange exchange, int status, String contentType, byte[] payload)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, payload.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(payload);
+        }
+    }
+
+    private static byte[] zipDirectory(Path dir) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ZipOutputStream zip = new ZipOutputStream(bytes); Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                zip.putNextEntry(new ZipEntry(dir.relativize(file).toString().replace('\\', '/')));
+                Files.copy(file, zip);
+                zip.closeEntry();
+            }
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static void deleteDirectory(Path dir) {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        } catch (IOException e) {
+            System.err.printf("Failed to clean up the work directory %s: %s%n", dir, e);
+        }
+    }
+}
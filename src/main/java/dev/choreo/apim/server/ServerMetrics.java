@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim.server;
+
+import dev.choreo.apim.PolicyManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Request counters of the generator server and the counters of its policy cache, rendered in the Prometheus text
+ * exposition format.
+ */
+public class ServerMetrics {
+
+    private final long startTime = System.currentTimeMillis();
+    private final PolicyManager policyManager;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLong totalGenerationMillis = new AtomicLong();
+    private final AtomicLong maxGenerationMillis = new AtomicLong();
+
+    public ServerMetrics(PolicyManager policyManager) {
+        this.policyManager = policyManager;
+    }
+
+    void requestStarted() {
+        this.requests.incrementAndGet();
+        this.inFlight.incrementAndGet();
+    }
+
+    void requestCompleted(long elapsedMillis, boolean success) {
+        this.inFlight.decrementAndGet();
+        this.totalGenerationMillis.addAndGet(elapsedMillis);
+        this.maxGenerationMillis.accumulateAndGet(elapsedMillis, Math::max);
+
+        if (!success) {
+            this.failures.incrementAndGet();
+        }
+    }
+
+    long requestCount() {
+        return this.requests.get();
+    }
+
+    public String render() {
+        StringBuilder builder = new StringBuilder();
+        appendMetric(builder, "proxygen_uptime_seconds", "gauge",
+                     (System.currentTimeMillis() - this.startTime) / 1000.0);
+        appendMetric(builder, "proxygen_requests_total", "counter", this.requests.get());
+        appendMetric(builder, "proxygen_requests_failed_total", "counter", this.failures.get());
+        appendMetric(builder, "proxygen_requests_in_flight", "gauge", this.inFlight.get());
+        appendMetric(builder, "proxygen_generation_seconds_sum", "counter",
+                     this.totalGenerationMillis.get() / 1000.0);
+        appendMetric(builder, "proxygen_generation_seconds_max", "gauge", this.maxGenerationMillis.get() / 1000.0);
+
+        PolicyManager.CacheStats cacheStats = this.policyManager.getCacheStats();
+        appendMetric(builder, "proxygen_policy_cache_size", "gauge", cacheStats.size());
+        appendMetric(builder, "proxygen_policy_cache_hits_total", "counter", cacheStats.hits());
+        appendMetric(builder, "proxygen_policy_cache_misses_total", "counter", cacheStats.misses());
+        appendMetric(builder, "proxygen_policy_cache_evictions_total", "counter", cacheStats.evictions());
+        return builder.toString();
+    }
+
+    private static void appendMetric(StringBuilder builder, String name, String type, Number value) {
+        builder.append("# TYPE ").append(name).append(' ').append(type).append('\n')
+                .append(name).append(' ').append(value).append('\n');
+    }
+}
@@ -18,9 +18,146 @@
 
 package dev.choreo.apim.utils;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+
 public class Utils {
 
+    private static final Set<String> RESERVED_WORDS = Set.of(
+            "abort", "abstract", "annotation", "any", "anydata", "as", "ascending", "boolean", "break", "but",
+            "by", "byte", "check", "checkpanic", "class", "client", "commit", "configurable", "const", "continue",
+            "decimal", "default", "descending", "distinct", "do", "else", "enum", "equals", "error", "external",
+            "fail", "false", "final", "float", "flush", "foreach", "fork", "from", "function", "future", "handle",
+            "if", "import", "in", "int", "is", "isolated", "join", "json", "let", "limit", "listener", "lock",
+            "map", "match", "never", "new", "null", "object", "on", "order", "outer", "panic", "private", "public",
+            "readonly", "record", "remote", "resource", "retry", "return", "returns", "rollback", "select",
+            "service", "source", "start", "stream", "string", "table", "transaction", "trap", "true", "type",
+            "typedesc", "typeof", "var", "wait", "where", "while", "worker", "xml", "xmlns");
+
     public static String buildOpKey(String httpMethod, String resourcePath) {
         return String.format("%s %s", httpMethod.toUpperCase(), resourcePath);
     }
+
+    /**
+     * Converts a name to a Ballerina identifier, escaping the characters not allowed in identifiers and quoting it if
+     * need be. e.g., {@code 1.0} to {@code '1\.0}.
+     */
+    public static String escapeIdentifier(String identifier) {
+        StringBuilder builder = new StringBuilder();
+
+        for (char c : identifier.toCharArray()) {
+            if (!Character.isLetterOrDigit(c) && c != '_') {
+                builder.append('\\');
+            }
+            builder.append(c);
+        }
+
+        boolean quoted = Character.isDigit(identifier.charAt(0)) || RESERVED_WORDS.contains(identifier);
+        return quoted ? "'" + builder : builder.toString();
+    }
+
+    /**
+     * Converts a (possibly quoted and escaped) Ballerina identifier to the name it stands for. e.g., {@code '1\.0}
+     * to {@code 1.0}.
+     */
+    public static String unescapeIdentifier(String identifier) {
+        String name = identifier.startsWith("'") ? identifier.substring(1) : identifier;
+
+        if (name.indexOf('\\') < 0) {
+            return name;
+        }
+
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '\\' && i + 1 < name.length()) {
+                c = name.charAt(++i);
+            }
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Converts a string to a Ballerina string literal, escaping the characters which cannot appear in one as is.
+     */
+    public static String toStringLiteral(String value) {
+        StringBuilder builder = new StringBuilder("\"");
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    if (Character.isISOControl(c)) {
+                        builder.append(String.format("\\u{%X}", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+            }
+        }
+
+        return builder.append('"').toString();
+    }
+
+    /**
+     * Reads a text resource (e.g., a code snippet) from the classpath, normalizing the line endings.
+     */
+    public static String readResource(String path) {
+        StringBuilder builder = new StringBuilder();
+        InputStream stream = Utils.class.getClassLoader().getResourceAsStream(path);
+
+        if (stream == null) {
+            throw new IllegalStateException("Resource not found: " + path);
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                builder.append(line).append('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return builder.toString();
+    }
+
+    public static MessageDigest newSha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    public static String toHex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder();
+        for (byte b : bytes) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
 }
@@ -0,0 +1,28 @@
+configurable string backendHttpVersion = %1$s;
+configurable decimal backendTimeout = %2$s;
+configurable string backendKeepAlive = %3$s;
+configurable boolean backendHttp2PriorKnowledge = %4$s;
+configurable int backendMaxActiveConnections = %5$s;
+configurable int backendMaxIdleConnections = %6$s;
+configurable decimal backendPoolWaitTime = %7$s;
+configurable int backendMaxActiveStreamsPerConnection = %8$s;
+
+// The settings common to the plain, the load-balanced and the failover clients
+final http:CommonClientConfiguration backendClientConfig = {
+    httpVersion: <http:HttpVersion>backendHttpVersion,
+    timeout: backendTimeout,
+    http1Settings: {
+        keepAlive: <http:KeepAlive>backendKeepAlive
+    },
+    http2Settings: {
+        http2PriorKnowledge: backendHttp2PriorKnowledge
+    },
+    poolConfig: {
+        maxActiveConnections: backendMaxActiveConnections,
+        maxIdleConnections: backendMaxIdleConnections,
+        waitTime: backendPoolWaitTime,
+        maxActiveStreamsPerConnection: backendMaxActiveStreamsPerConnection
+    }
+};
+
+%9$s
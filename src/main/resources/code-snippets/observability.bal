@@ -0,0 +1,43 @@
+type StageMetrics record {|
+    observe:Gauge latency;
+    observe:Counter calls;
+|};
+
+function newStageMetrics(string resourceName, string stage) returns StageMetrics {
+    map<string> tags = {"resource": resourceName, "stage": stage};
+    // The latencies are summarised over a sliding window of 10 minutes, as percentiles along with the mean and the max
+    observe:StatisticConfig[] latencyStatistics = [
+        {timeWindow: 600000, buckets: 5, percentiles: [0.5, 0.75, 0.95, 0.99]}
+    ];
+    observe:Gauge latency = new ("proxy_stage_latency_seconds",
+            "Time spent in a stage (a policy or the backend call) of the mediation of a resource", tags,
+            latencyStatistics);
+    observe:Counter calls = new ("proxy_stage_calls_total",
+            "Number of runs of a stage (a policy or the backend call) of the mediation of a resource", tags);
+    // The metrics are declared once per resource and stage, so they cannot clash with other registered metrics
+    error? result = latency.register();
+    result = calls.register();
+    return {latency, calls};
+}
+
+function startSpan(string name) returns int? {
+    int|error spanId = observe:startSpan(name);
+    return spanId is int ? spanId : ();
+}
+
+function endStage(StageMetrics metrics, decimal startTime, int? spanId = ()) {
+    metrics.latency.setValue(<float>(time:monotonicNow() - startTime));
+    metrics.calls.increment();
+    if spanId is int {
+        error? result = observe:finishSpan(spanId);
+    }
+}
+
+// Runs a policy in the strand it is started in, so that it is timed there rather than while it is waited on
+function timeStage(StageMetrics metrics, string stage, function () returns any|error policy) returns any|error {
+    decimal startTime = time:monotonicNow();
+    int? spanId = startSpan(stage);
+    any|error result = policy();
+    endStage(metrics, startTime, spanId);
+    return result;
+}
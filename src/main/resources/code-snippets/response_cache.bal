@@ -0,0 +1,143 @@
+type CachedResponse readonly & record {|
+    int statusCode;
+    map<string[]> headers;
+    byte[] body;
+    string? etag;
+    decimal expiresAt;
+|};
+
+function executeWithCache(cache:Cache responseCache, readonly & string[] keyHeaders, decimal ttl, string httpMethod,
+        string resourcePath, http:Request req) returns http:Response|error {
+    string key = getCacheKey(httpMethod, req, keyHeaders);
+    string[] requestDirectives = getCacheControl(req.getHeaders("cache-control"));
+    boolean noStore = requestDirectives.indexOf("no-store") != ();
+    CachedResponse? cached = ();
+
+    if !noStore {
+        any|cache:Error entry = responseCache.get(key);
+        if entry is CachedResponse {
+            cached = entry;
+        }
+    }
+
+    if cached is CachedResponse {
+        if time:monotonicNow() < cached.expiresAt && requestDirectives.indexOf("no-cache") == () {
+            return toResponse(cached);
+        }
+
+        string? etag = cached.etag;
+        if etag is string {
+            req.setHeader("if-none-match", etag);
+        }
+    }
+
+    http:Response res = check backendEP->execute(httpMethod, resourcePath, req);
+
+    if cached is CachedResponse && res.statusCode == http:STATUS_NOT_MODIFIED {
+        decimal? maxAge = getMaxAge(res, ttl);
+        CachedResponse revalidated = {
+            statusCode: cached.statusCode,
+            headers: cached.headers,
+            body: cached.body,
+            etag: cached.etag,
+            expiresAt: time:monotonicNow() + (maxAge ?: 0d)
+        };
+        check responseCache.put(key, revalidated);
+        return toResponse(revalidated);
+    }
+
+    if noStore || res.statusCode != http:STATUS_OK {
+        return res;
+    }
+
+    decimal? maxAge = getMaxAge(res, ttl);
+    string|http:HeaderNotFoundError etag = res.getHeader("etag");
+
+    // Responses which are not fresh for any time are only worth keeping if they can be revalidated
+    if maxAge is () || (maxAge <= 0d && etag is error) {
+        return res;
+    }
+
+    map<string[]> headers = {};
+    foreach string name in res.getHeaderNames() {
+        headers[name] = check res.getHeaders(name);
+    }
+
+    CachedResponse entry = {
+        statusCode: res.statusCode,
+        headers: headers.cloneReadOnly(),
+        body: (check res.getBinaryPayload()).cloneReadOnly(),
+        etag: etag is string ? etag : (),
+        expiresAt: time:monotonicNow() + maxAge
+    };
+    check responseCache.put(key, entry);
+    return res;
+}
+
+function getCacheKey(string httpMethod, http:Request req, string[] keyHeaders) returns string {
+    string key = httpMethod + " " + req.rawPath;
+    foreach string name in keyHeaders {
+        string|http:HeaderNotFoundError value = req.getHeader(name);
+        key += "\n" + name + ":" + (value is string ? value : "");
+    }
+    return key;
+}
+
+// Returns the time the response can be served from the cache for, or () if it must not be cached
+function getMaxAge(http:Response res, decimal ttl) returns decimal? {
+    decimal? maxAge = ();
+    decimal? sharedMaxAge = ();
+    boolean noCache = false;
+
+    foreach string directive in getCacheControl(res.getHeaders("cache-control")) {
+        if directive == "no-store" || directive == "private" {
+            return ();
+        } else if directive == "no-cache" {
+            noCache = true;
+        } else if directive.startsWith("s-maxage=") {
+            sharedMaxAge = parseSeconds(directive.substring(9));
+        } else if directive.startsWith("max-age=") {
+            maxAge = parseSeconds(directive.substring(8));
+        }
+    }
+
+    return noCache ? 0d : sharedMaxAge ?: maxAge ?: ttl;
+}
+
+function parseSeconds(string value) returns decimal? {
+    int|error seconds = int:fromString(value.trim());
+    return seconds is int ? <decimal>seconds : ();
+}
+
+function getCacheControl(string[]|http:HeaderNotFoundError values) returns string[] {
+    string[] directives = [];
+
+    if values is string[] {
+        foreach string value in values {
+            string remaining = value;
+            int? comma = remaining.indexOf(",");
+
+            while comma is int {
+                directives.push(remaining.substring(0, comma).trim().toLowerAscii());
+                remaining = remaining.substring(comma + 1);
+                comma = remaining.indexOf(",");
+            }
+            directives.push(remaining.trim().toLowerAscii());
+        }
+    }
+    return directives;
+}
+
+function toResponse(CachedResponse cached) returns http:Response {
+    http:Response res = new;
+    res.setBinaryPayload(cached.body);
+    res.statusCode = cached.statusCode;
+
+    foreach [string, string[]] [name, values] in cached.headers.entries() {
+        res.removeHeader(name);
+        foreach string value in values {
+            res.addHeader(name, value);
+        }
+    }
+    return res;
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim;
+
+import dev.choreo.apim.artifact.ApiArtifact;
+import dev.choreo.apim.artifact.model.EndpointConfig;
+import dev.choreo.apim.utils.MediationCodeGenException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BackendClientGeneratorTest {
+
+    // Only the client declaration
+    private static final String TEMPLATE = "%9$s";
+
+    @Test
+    void generatesLoadBalanceClientFromApiYaml() throws Exception {
+        String client = BackendClientGenerator.generate(TEMPLATE, readEndpointConfig("load-balance"));
+
+        assertEquals("configurable boolean useSandboxEndpoint = false;\n\n"
+                             + "final http:LoadBalanceClient backendEP = check new({\n"
+                             + "    ...backendClientConfig,\n"
+                             + "    targets: useSandboxEndpoint ? [{url: \"https://sandbox.pizzashack.example/api/\"}]"
+                             + " : [{url: \"https://pizzashack-1.example/api/\"}, "
+                             + "{url: \"https://pizzashack-2.example/api/\"}],\n"
+                             + "    failover: false\n"
+                             + "});", client);
+    }
+
+    @Test
+    void generatesFailoverClientFromApiYaml() throws Exception {
+        String client = BackendClientGenerator.generate(TEMPLATE, readEndpointConfig("failover"));
+
+        assertEquals("configurable boolean useSandboxEndpoint = false;\n\n"
+                             + "final http:FailoverClient backendEP = check new({\n"
+                             + "    ...backendClientConfig,\n"
+                             + "    targets: useSandboxEndpoint ? [{url: \"https://sandbox.pizzashack.example/api/\"}]"
+                             + " : [{url: \"https://pizzashack-1.example/api/\"}, "
+                             + "{url: \"https://pizzashack-2.example/api/\"}, "
+                             + "{url: \"https://pizzashack-3.example/api/\"}]\n"
+                             + "});", client);
+    }
+
+    @Test
+    void generatesPlainClientForSingleEndpoint() {
+        EndpointConfig config = new EndpointConfig();
+        config.setProduction_endpoints(Map.of("url", "http://backend:8080"));
+
+        assertEquals("final http:Client backendEP = check new(\"http://backend:8080\", {...backendClientConfig});",
+                     BackendClientGenerator.generate(TEMPLATE, config));
+    }
+
+    @Test
+    void rejectsSeveralEndpointsForPlainClient() {
+        EndpointConfig config = new EndpointConfig();
+        config.setProduction_endpoints(List.of(Map.of("url", "http://backend-1:8080"),
+                                               Map.of("url", "http://backend-2:8080")));
+
+        assertThrows(MediationCodeGenException.class, () -> BackendClientGenerator.generate(TEMPLATE, config));
+    }
+
+    @Test
+    void rejectsEndpointWithoutUrl() {
+        EndpointConfig config = new EndpointConfig();
+        config.setEndpoint_type(EndpointConfig.LOAD_BALANCE);
+        config.setProduction_endpoints(List.of(Map.of("url", "http://backend-1:8080"),
+                                               Map.of("endpoint_type", "http")));
+
+        MediationCodeGenException e = assertThrows(MediationCodeGenException.class,
+                                                   () -> BackendClientGenerator.generate(TEMPLATE, config));
+        assertEquals("The URL of a production endpoint is unavailable", e.getMessage());
+    }
+
+    private EndpointConfig readEndpointConfig(String artifact) throws IOException, URISyntaxException {
+        Path path = Path.of(getClass().getResource("/artifacts/" + artifact).toURI());
+
+        try (ApiArtifact apiArtifact = ApiArtifact.open(path)) {
+            return apiArtifact.apiYaml().getData().getEndpointConfig();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim;
+
+import dev.choreo.apim.artifact.model.Operation;
+import dev.choreo.apim.repos.FileSystemPolicyRepository;
+import dev.choreo.apim.repos.PolicyBundle;
+import dev.choreo.apim.repos.PolicyBundleWriter;
+import io.ballerina.compiler.api.symbols.ParameterKind;
+import io.ballerina.compiler.api.symbols.TypeDescKind;
+import io.ballerina.compiler.syntax.tree.SyntaxTree;
+import io.ballerina.tools.text.TextDocument;
+import io.ballerina.tools.text.TextDocuments;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static dev.choreo.apim.utils.Utils.readResource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IncrementalTransformerTest {
+
+    private static final PackageID ADD_HEADER = PackageID.from("wso2/addHeader", "1.0.0");
+    // A service as generated by a previous run, where GET /menu had the removeHeader policy
+    private static final String SERVICE = "import ballerina/http;\n"
+            + "import wso2/removeHeader;\n"
+            + "\n"
+            + "service / on new http:Listener(9090) {\n"
+            + "    resource function get menu(http:Caller caller, http:Request incomingRequest) returns error? {\n"
+            + "        removeHeader:removeHeader(incomingRequest);\n"
+            + "    }\n"
+            + "\n"
+            + "    resource function get orders(http:Caller caller, http:Request incomingRequest) returns error? {\n"
+            + "        // Not regenerated\n"
+            + "    }\n"
+            + "}\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void regeneratesOnlyChangedResources() throws IOException {
+        Map<String, Operation> operations = Map.of(
+                "GET /menu", TestOperations.operation(List.of("wso2/addHeader:1.0.0"), List.of(), List.of()),
+                "GET /orders", TestOperations.operation(List.of(), List.of(), List.of()));
+
+        try (PolicyBundle bundle = writeBundle()) {
+            String regenerated = regenerate(SERVICE, Set.of("GET /menu"), newCodeGenerator(bundle, operations, false));
+
+            assertTrue(regenerated.contains("addHeader:addHeader(incomingRequest, mediationCtx)"), regenerated);
+            assertFalse(regenerated.contains("removeHeader:removeHeader("), regenerated);
+            assertTrue(regenerated.contains("        // Not regenerated\n"), regenerated);
+            // The constant of the mediation context of the regenerated resource
+            assertTrue(regenerated.contains(CodeGenerator.GENERATED_MEMBERS_BEGIN), regenerated);
+            assertTrue(regenerated.contains("final readonly & policy_validator:MediationContext MEDIATION_CTX_"),
+                       regenerated);
+        }
+    }
+
+    @Test
+    void regeneratesGeneratedMembersInPlace() throws IOException {
+        Map<String, Operation> operations = Map.of(
+                "GET /menu", TestOperations.operation(List.of("wso2/addHeader:1.0.0"), List.of(), List.of()),
+                "GET /orders", TestOperations.operation(List.of(), List.of(), List.of()));
+
+        try (PolicyBundle bundle = writeBundle()) {
+            String first = regenerate(SERVICE, Set.of("GET /menu"), newCodeGenerator(bundle, operations, false));
+            String second = regenerate(first, Set.of("GET /menu"), newCodeGenerator(bundle, operations, false));
+
+            assertEquals(first, second);
+            assertEquals(first.indexOf(CodeGenerator.GENERATED_MEMBERS_BEGIN),
+                         first.lastIndexOf(CodeGenerator.GENERATED_MEMBERS_BEGIN));
+        }
+    }
+
+    @Test
+    void leavesUnchangedServiceAsIs() throws IOException {
+        Map<String, Operation> operations = Map.of(
+                "GET /menu", TestOperations.operation(List.of("wso2/addHeader:1.0.0"), List.of(), List.of()),
+                "GET /orders", TestOperations.operation(List.of(), List.of(), List.of()));
+
+        try (PolicyBundle bundle = writeBundle()) {
+            String first = regenerate(SERVICE, Set.of("GET /menu"), newCodeGenerator(bundle, operations, false));
+
+            assertEquals(first, regenerate(first, Set.of(), newCodeGenerator(bundle, operations, false)));
+        }
+    }
+
+    @Test
+    void keepsSharedMediationFunctionsOfUnchangedResources() throws IOException {
+        String service = SERVICE.replace("get orders", "get drinks");
+        Map<String, Operation> operations = Map.of(
+                "GET /menu", TestOperations.operation(List.of("wso2/addHeader:1.0.0"), List.of(), List.of()),
+                "GET /drinks", TestOperations.operation(List.of("wso2/addHeader:1.0.0"), List.of(), List.of()));
+
+        try (PolicyBundle bundle = writeBundle()) {
+            String generated = regenerate(service, Set.of("GET /menu", "GET /drinks"),
+                                          newCodeGenerator(bundle, operations, true));
+            // GET /drinks is not regenerated, but still calls the function of the chain it shares with GET /menu
+            String regenerated = regenerate(generated, Set.of("GET /menu"),
+                                            newCodeGenerator(bundle, operations, true));
+
+            int call = regenerated.indexOf("return mediate_");
+            String fnName = regenerated.substring(call + "return ".length(), regenerated.indexOf('(', call));
+            assertEquals(2, count(regenerated, "return " + fnName + "(caller, incomingRequest, mediationCtx);"),
+                         regenerated);
+            assertEquals(1, count(regenerated, "function " + fnName + "("), regenerated);
+            assertTrue(regenerated.indexOf("function " + fnName + "(")
+                               > regenerated.indexOf(CodeGenerator.GENERATED_MEMBERS_BEGIN), regenerated);
+        }
+    }
+
+    @Test
+    void reconcilesPolicyImports() throws IOException {
+        Map<String, Operation> operations = Map.of(
+                "GET /menu", TestOperations.operation(List.of("wso2/addHeader:1.0.0"), List.of(), List.of()),
+                "GET /orders", TestOperations.operation(List.of(), List.of(), List.of()));
+
+        try (PolicyBundle bundle = writeBundle()) {
+            String regenerated = regenerate(SERVICE, Set.of("GET /menu"), newCodeGenerator(bundle, operations, false));
+
+            assertTrue(regenerated.contains("import wso2/addHeader;\n"), regenerated);
+            assertFalse(regenerated.contains("import wso2/removeHeader;"), regenerated);
+            assertTrue(regenerated.contains("import ballerina/http;\n"), regenerated);
+        }
+    }
+
+    @Test
+    void removesMediationStdlibImportsOnlyIfUnreferenced() throws IOException {
+        // The previous mediation of GET /menu timed its policies
+        String service = SERVICE.replace("import ballerina/http;\n", "import ballerina/http;\nimport ballerina/time;\n")
+                .replace("        removeHeader:removeHeader(incomingRequest);\n",
+                         "        decimal stageStart = time:monotonicNow();\n"
+                                 + "        removeHeader:removeHeader(incomingRequest);\n");
+        String serviceUsingTime = service + "\nfunction now() returns decimal => time:monotonicNow();\n";
+        Map<String, Operation> operations = Map.of(
+                "GET /menu", TestOperations.operation(List.of("wso2/addHeader:1.0.0"), List.of(), List.of()),
+                "GET /orders", TestOperations.operation(List.of(), List.of(), List.of()));
+
+        try (PolicyBundle bundle = writeBundle()) {
+            String regenerated = regenerate(service, Set.of("GET /menu"), newCodeGenerator(bundle, operations, false));
+            assertFalse(regenerated.contains("import ballerina/time;"), regenerated);
+
+            regenerated = regenerate(serviceUsingTime, Set.of("GET /menu"),
+                                     newCodeGenerator(bundle, operations, false));
+            assertTrue(regenerated.contains("import ballerina/time;\n"), regenerated);
+        }
+    }
+
+    private static int count(String text, String part) {
+        int count = 0;
+        for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + part.length())) {
+            count++;
+        }
+        return count;
+    }
+
+    private static String regenerate(String service, Set<String> changedOps, CodeGenerator codegen) {
+        TextDocument txtDoc = TextDocuments.from(service);
+        return txtDoc.apply(new IncrementalTransformer(changedOps).modifyDoc(SyntaxTree.from(txtDoc), codegen))
+                .toString();
+    }
+
+    /**
+     * Bundles the policies with their descriptors, so that they are never compiled.
+     */
+    private PolicyBundle writeBundle() throws IOException {
+        List<PolicyFunction.Parameter> params = List.of(
+                new PolicyFunction.Parameter("req", ParameterKind.REQUIRED, TypeDescKind.TYPE_REFERENCE,
+                                             "http:Request"),
+                new PolicyFunction.Parameter("ctx", ParameterKind.REQUIRED, TypeDescKind.RECORD,
+                                             "policy_validator:MediationContext"));
+        PolicyDescriptor descriptor = new PolicyDescriptor(ADD_HEADER.org(), ADD_HEADER.name(), ADD_HEADER.version(),
+                                                           Map.of(PolicyFlow.IN, new PolicyFunction("addHeader",
+                                                                                                    params)));
+        Path bundlePath = this.tempDir.resolve("policies.bundle");
+        new PolicyBundleWriter().addBala(ADD_HEADER, "any", new byte[0], descriptor).write(bundlePath);
+        return PolicyBundle.open(bundlePath);
+    }
+
+    private CodeGenerator newCodeGenerator(PolicyBundle bundle, Map<String, Operation> operations,
+                                           boolean sharedMediation) {
+        PolicyPackageLoader loader = new PolicyPackageLoader(
+                this.tempDir.resolve("distribution"), this.tempDir.resolve("home"),
+                new FileSystemPolicyRepository(this.tempDir.resolve("repository")), bundle);
+        return new CodeGenerator(readResource("code-snippets/inflow_template.bal"),
+                                 readResource("code-snippets/outflow_template.bal"),
+                                 readResource("code-snippets/faultflow_template.bal"), new PolicyManager(loader),
+                                 operations, sharedMediation);
+    }
+}
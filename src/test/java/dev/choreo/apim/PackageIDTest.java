@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim;
+
+import dev.choreo.apim.artifact.model.Operation;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PackageIDTest {
+
+    @Test
+    void collapsesReferencesToDistinctPackages() {
+        List<Operation> ops = List.of(
+                TestOperations.operation(List.of("wso2/addHeader:1.0.0", "wso2/jwt:1.0.0"),
+                                         List.of("wso2/addHeader:1.0.0"), List.of()),
+                TestOperations.operation(List.of("wso2/jwt:1.0.0", "wso2/addHeader:1.0.0"), List.of(),
+                                         List.of("wso2/fault:1.0.0")),
+                TestOperations.operation(List.of("wso2/addHeader:2.0.0"), List.of(), List.of()));
+
+        Set<PackageID> ids = PackageID.referencedBy(ops);
+
+        assertEquals(List.of(PackageID.from("wso2/addHeader", "1.0.0"), PackageID.from("wso2/jwt", "1.0.0"),
+                             PackageID.from("wso2/fault", "1.0.0"), PackageID.from("wso2/addHeader", "2.0.0")),
+                     List.copyOf(ids));
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim;
+
+import dev.choreo.apim.artifact.model.Policy;
+import dev.choreo.apim.utils.MediationCodeGenException;
+import io.ballerina.compiler.api.symbols.ParameterKind;
+import io.ballerina.compiler.api.symbols.TypeDescKind;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PolicyArgumentsTest {
+
+    private static final PolicyPackage PKG = new PolicyPackage(new PolicyDescriptor("wso2", "ratelimit.policy",
+                                                                                    "1.0.0", Map.of()));
+    // The request and the mediation context
+    private static final List<PolicyFunction.Parameter> FIXED_PARAMS = List.of(
+            new PolicyFunction.Parameter("req", ParameterKind.REQUIRED, TypeDescKind.TYPE_REFERENCE, "http:Request"),
+            new PolicyFunction.Parameter("ctx", ParameterKind.REQUIRED, TypeDescKind.RECORD, "Context"));
+    private static final Pattern ARGUMENT = Pattern.compile(", (\\S+) = ([A-Z0-9_]+)");
+
+    @Test
+    void declaresSimpleValuesAsConstants() {
+        ModuleConstants constants = new ModuleConstants();
+        String args = PolicyArguments.generate(
+                PKG, function(param("header", TypeDescKind.STRING, "string"),
+                              param("requests", TypeDescKind.INT, "int"),
+                              param("enabled", TypeDescKind.BOOLEAN, "boolean")),
+                2, policy(Map.of("header", "X-Rate\"Limit", "requests", 100, "enabled", true)), constants);
+
+        Map<String, String> names = argumentNames(args);
+        assertEquals(List.of("header", "requests", "enabled"), new ArrayList<>(names.keySet()));
+        assertTrue(names.get("header").matches("RATELIMIT_POLICY_HEADER_[0-9A-F]{8}"), names.get("header"));
+        assertTrue(constants.declarations().contains("const string " + names.get("header") + " = \"X-Rate\\\"Limit\";"),
+                   constants.declarations().toString());
+        assertTrue(constants.declarations().contains("const int " + names.get("requests") + " = 100;"));
+        assertTrue(constants.declarations().contains("const boolean " + names.get("enabled") + " = true;"));
+    }
+
+    @Test
+    void generatesFloatAndDecimalLiterals() {
+        ModuleConstants constants = new ModuleConstants();
+        Map<String, String> names = argumentNames(PolicyArguments.generate(
+                PKG, function(param("ratio", TypeDescKind.FLOAT, "float"),
+                              param("timeout", TypeDescKind.FLOAT, "float"),
+                              param("amount", TypeDescKind.DECIMAL, "decimal")),
+                2, policy(Map.of("ratio", 1e3, "timeout", 2, "amount", 10.25)), constants));
+
+        // Written in plain notation, and an int literal is a float literal where a float is expected
+        assertTrue(constants.declarations().contains("const float " + names.get("ratio") + " = 1000.0;"),
+                   constants.declarations().toString());
+        assertTrue(constants.declarations().contains("const float " + names.get("timeout") + " = 2;"));
+        assertTrue(constants.declarations().contains("const decimal " + names.get("amount") + " = 10.25;"));
+    }
+
+    @Test
+    void declaresStructuredValuesAsReadonlyVariables() {
+        ModuleConstants constants = new ModuleConstants();
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("unit", "MINUTE");
+        config.put("quotas", List.of(10, 1.5));
+        Map<String, String> names = argumentNames(PolicyArguments.generate(
+                PKG, function(param("config", TypeDescKind.RECORD, "wso2/ratelimit.policy:1.0.0:Config")),
+                2, policy(Map.of("config", config)), constants));
+
+        // The type is qualified with the import prefix, i.e., the last part of the package name
+        assertEquals(List.of("final readonly & policy:Config " + names.get("config")
+                                     + " = {\"unit\": \"MINUTE\", \"quotas\": [10, 1.5]};"),
+                     new ArrayList<>(constants.declarations()));
+    }
+
+    @Test
+    void sharesConstantsOfSameValue() {
+        ModuleConstants constants = new ModuleConstants();
+        PolicyFunction fn = function(param("limit", TypeDescKind.INT, "int"));
+
+        String first = PolicyArguments.generate(PKG, fn, 2, policy(Map.of("limit", 100)), constants);
+        String second = PolicyArguments.generate(PKG, fn, 2, policy(Map.of("limit", 100)), constants);
+        String other = PolicyArguments.generate(PKG, fn, 2, policy(Map.of("limit", 200)), constants);
+
+        assertEquals(first, second);
+        assertTrue(!first.equals(other), other);
+        assertEquals(2, constants.declarations().size());
+    }
+
+    @Test
+    void skipsMissingDefaultableParameters() {
+        ModuleConstants constants = new ModuleConstants();
+        PolicyFunction fn = function(new PolicyFunction.Parameter("limit", ParameterKind.DEFAULTABLE,
+                                                                  TypeDescKind.INT, "int"));
+
+        assertEquals("", PolicyArguments.generate(PKG, fn, 2, policy(Map.of()), constants));
+        assertTrue(constants.isEmpty());
+    }
+
+    @Test
+    void escapesReservedParameterNames() {
+        String args = PolicyArguments.generate(PKG, function(param("limit", TypeDescKind.INT, "int")), 2,
+                                               policy(Map.of("limit", 1)), new ModuleConstants());
+
+        assertTrue(args.startsWith(", 'limit = RATELIMIT_POLICY_LIMIT_"), args);
+    }
+
+    @Test
+    void rejectsUnknownParameter() {
+        MediationCodeGenException e = assertThrows(MediationCodeGenException.class, () -> PolicyArguments.generate(
+                PKG, function(param("limit", TypeDescKind.INT, "int")), 2, policy(Map.of("limit", 1, "burst", 2)),
+                new ModuleConstants()));
+
+        assertEquals("Unknown parameter 'burst' of policy rateLimit:v1", e.getMessage());
+    }
+
+    @Test
+    void rejectsMissingRequiredParameter() {
+        MediationCodeGenException e = assertThrows(MediationCodeGenException.class, () -> PolicyArguments.generate(
+                PKG, function(param("limit", TypeDescKind.INT, "int")), 2, policy(Map.of()), new ModuleConstants()));
+
+        assertEquals("Missing required parameter 'limit' of policy rateLimit:v1", e.getMessage());
+    }
+
+    @Test
+    void rejectsValueOfWrongType() {
+        MediationCodeGenException e = assertThrows(MediationCodeGenException.class, () -> PolicyArguments.generate(
+                PKG, function(param("limit", TypeDescKind.INT, "int")), 2, policy(Map.of("limit", "100")),
+                new ModuleConstants()));
+
+        assertEquals("Invalid value for the parameter 'limit' of policy rateLimit:v1: expected a value of type 'int', "
+                             + "found '100'", e.getMessage());
+    }
+
+    @Test
+    void rejectsTypeOfOtherPackage() {
+        assertThrows(MediationCodeGenException.class, () -> PolicyArguments.generate(
+                PKG, function(param("config", TypeDescKind.RECORD, "wso2/other:1.0.0:Config")), 2,
+                policy(Map.of("config", Map.of())), new ModuleConstants()));
+    }
+
+    private static PolicyFunction function(PolicyFunction.Parameter... params) {
+        List<PolicyFunction.Parameter> allParams = new ArrayList<>(FIXED_PARAMS);
+        allParams.addAll(List.of(params));
+        return new PolicyFunction("rateLimit", allParams);
+    }
+
+    private static PolicyFunction.Parameter param(String name, TypeDescKind kind, String signature) {
+        return new PolicyFunction.Parameter(name, ParameterKind.REQUIRED, kind, signature);
+    }
+
+    private static Policy policy(Map<String, Object> parameters) {
+        Policy policy = new Policy();
+        policy.setPolicyName("rateLimit");
+        policy.setPolicyVersion("v1");
+        policy.setParameters(new LinkedHashMap<>(parameters));
+        return policy;
+    }
+
+    /**
+     * The constant passed for each argument, by parameter name.
+     */
+    private static Map<String, String> argumentNames(String args) {
+        Map<String, String> names = new LinkedHashMap<>();
+        Matcher matcher = ARGUMENT.matcher(args);
+        while (matcher.find()) {
+            names.put(matcher.group(1), matcher.group(2));
+        }
+        return names;
+    }
+}
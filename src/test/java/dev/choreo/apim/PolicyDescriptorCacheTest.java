@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim;
+
+import io.ballerina.compiler.api.symbols.ParameterKind;
+import io.ballerina.compiler.api.symbols.TypeDescKind;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PolicyDescriptorCacheTest {
+
+    private static final PackageID ID = PackageID.from("wso2/addHeader", "1.0.0");
+    private static final String CHECKSUM = "3f2a1b9c";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readsBackWrittenDescriptor() {
+        PolicyDescriptorCache cache = new PolicyDescriptorCache(this.tempDir);
+        cache.write(ID, CHECKSUM, descriptor());
+
+        PolicyDescriptor descriptor = cache.read(ID, CHECKSUM).orElseThrow();
+
+        assertEquals("wso2", descriptor.org());
+        assertEquals("addHeader", descriptor.name());
+        assertEquals("1.0.0", descriptor.version());
+        PolicyFunction inFlow = descriptor.getInFlowPolicy().orElseThrow();
+        assertEquals("addHeader", inFlow.name());
+        assertEquals(List.of("req", "ctx", "headerName"),
+                     inFlow.params().stream().map(PolicyFunction.Parameter::name).collect(Collectors.toList()));
+        assertEquals(TypeDescKind.STRING, inFlow.params().get(2).typeKind());
+        assertTrue(inFlow.params().get(2).isDefaultable());
+        assertTrue(inFlow.isHeaderOnly());
+        assertFalse(inFlow.isIndependent());
+        // The flows without a policy stay known to have none
+        assertTrue(descriptor.getOutFlowPolicy().isEmpty());
+        assertTrue(descriptor.getFaultFlowPolicy().isEmpty());
+    }
+
+    @Test
+    void missesWithoutEntry() {
+        assertTrue(new PolicyDescriptorCache(this.tempDir).read(ID, CHECKSUM).isEmpty());
+    }
+
+    @Test
+    void invalidatesEntryOfChangedBala() {
+        PolicyDescriptorCache cache = new PolicyDescriptorCache(this.tempDir);
+        cache.write(ID, CHECKSUM, descriptor());
+
+        assertTrue(cache.read(ID, "9c1b2a3f").isEmpty());
+        // A package is cached per version
+        assertTrue(cache.read(PackageID.from("wso2/addHeader", "1.0.1"), CHECKSUM).isEmpty());
+    }
+
+    @Test
+    void invalidatesEntryOfOtherFormatVersion() throws IOException {
+        PolicyDescriptorCache cache = new PolicyDescriptorCache(this.tempDir);
+        cache.write(ID, CHECKSUM, descriptor());
+        Path file = descriptorFile();
+        String entry = Files.readString(file);
+        assertTrue(entry.contains("\"formatVersion\":1"), entry);
+        Files.writeString(file, entry.replace("\"formatVersion\":1", "\"formatVersion\":0"));
+
+        assertTrue(cache.read(ID, CHECKSUM).isEmpty());
+    }
+
+    @Test
+    void overwritesCorruptedEntry() throws IOException {
+        PolicyDescriptorCache cache = new PolicyDescriptorCache(this.tempDir);
+        Files.createDirectories(descriptorFile().getParent());
+        Files.writeString(descriptorFile(), "{\"formatVersion\": 1, \"checksum\": ");
+
+        assertTrue(cache.read(ID, CHECKSUM).isEmpty());
+
+        cache.write(ID, CHECKSUM, descriptor());
+        Optional<PolicyDescriptor> descriptor = cache.read(ID, CHECKSUM);
+        assertTrue(descriptor.isPresent());
+        // Written through a temp file, which is not left behind
+        try (Stream<Path> files = Files.list(descriptorFile().getParent())) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void ignoresUnwritableCache() throws IOException {
+        Path notADirectory = Files.writeString(this.tempDir.resolve("bala"), "");
+        PolicyDescriptorCache cache = new PolicyDescriptorCache(notADirectory);
+
+        cache.write(ID, CHECKSUM, descriptor());
+
+        assertTrue(cache.read(ID, CHECKSUM).isEmpty());
+    }
+
+    private Path descriptorFile() {
+        return this.tempDir.resolve("wso2").resolve("addHeader").resolve("1.0.0")
+                .resolve(PolicyDescriptorCache.DESCRIPTOR_FILE);
+    }
+
+    private static PolicyDescriptor descriptor() {
+        List<PolicyFunction.Parameter> params = List.of(
+                new PolicyFunction.Parameter("req", ParameterKind.REQUIRED, TypeDescKind.TYPE_REFERENCE,
+                                             "http:Request"),
+                new PolicyFunction.Parameter("ctx", ParameterKind.REQUIRED, TypeDescKind.RECORD,
+                                             "policy_validator:Context"),
+                new PolicyFunction.Parameter("headerName", ParameterKind.DEFAULTABLE, TypeDescKind.STRING, "string"));
+        return new PolicyDescriptor(ID.org(), ID.name(), ID.version(),
+                                    Map.of(PolicyFlow.IN, new PolicyFunction("addHeader", params, false, true)));
+    }
+}
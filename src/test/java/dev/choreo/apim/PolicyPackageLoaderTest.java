@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim;
+
+import dev.choreo.apim.artifact.model.Operation;
+import dev.choreo.apim.repos.FileSystemPolicyRepository;
+import dev.choreo.apim.repos.PolicyRepository;
+import dev.choreo.apim.repos.TestBalas;
+import dev.choreo.apim.utils.MediationCodeGenException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PolicyPackageLoaderTest {
+
+    private static final int PULL_PARALLELISM = Integer.getInteger("policy.pull.parallelism", 4);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void pullsEachDistinctPackageOnce() throws IOException {
+        Path repositoryDir = this.tempDir.resolve("repository");
+        TestBalas.write(repositoryDir, PackageID.from("wso2/addHeader", "1.0.0"), "any");
+        TestBalas.write(repositoryDir, PackageID.from("wso2/jwt", "1.0.0"), "any");
+        CountingRepository repository = new CountingRepository(new FileSystemPolicyRepository(repositoryDir), 0);
+
+        List<Operation> ops = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            ops.add(TestOperations.operation(List.of("wso2/addHeader:1.0.0", "wso2/jwt:1.0.0"),
+                                             List.of("wso2/addHeader:1.0.0"), List.of()));
+        }
+
+        PolicyPackageLoader loader = newLoader(repository);
+        loader.pullPolicies(ops);
+        loader.pullPolicies(ops);
+
+        assertEquals(Map.of(PackageID.from("wso2/addHeader", "1.0.0"), 1, PackageID.from("wso2/jwt", "1.0.0"), 1),
+                     repository.pulls);
+        assertTrue(Files.isRegularFile(loader.getBalaPath(PackageID.from("wso2/jwt", "1.0.0"))
+                                               .resolve(TestBalas.PACKAGE_JSON)));
+    }
+
+    @Test
+    void pullsPackagesConcurrentlyWithBoundedParallelism() throws IOException {
+        Path repositoryDir = this.tempDir.resolve("repository");
+        List<String> policies = new ArrayList<>();
+
+        for (int i = 0; i < PULL_PARALLELISM * 3; i++) {
+            TestBalas.write(repositoryDir, PackageID.from("wso2/policy" + i, "1.0.0"), "any");
+            policies.add("wso2/policy" + i + ":1.0.0");
+        }
+
+        CountingRepository repository = new CountingRepository(new FileSystemPolicyRepository(repositoryDir), 200);
+        newLoader(repository).pullPolicies(List.of(TestOperations.operation(policies, List.of(), List.of())));
+
+        assertEquals(policies.size(), repository.pulls.size());
+        assertTrue(repository.maxActive.get() > 1, "Packages were pulled one at a time");
+        assertTrue(repository.maxActive.get() <= PULL_PARALLELISM,
+                   "Pulled " + repository.maxActive.get() + " packages at a time");
+    }
+
+    @Test
+    void pullsPackageWhoseVersionDirectoryHasNoBala() throws IOException {
+        Path repositoryDir = this.tempDir.resolve("repository");
+        PackageID id = PackageID.from("wso2/addHeader", "1.0.0");
+        TestBalas.write(repositoryDir, id, "java11");
+        CountingRepository repository = new CountingRepository(new FileSystemPolicyRepository(repositoryDir), 0);
+        // e.g., left behind by an older version of the generator
+        Files.createDirectories(this.tempDir.resolve(Path.of("home", "repositories", "central.ballerina.io", "bala",
+                                                             "wso2", "addHeader", "1.0.0")));
+
+        PolicyPackageLoader loader = newLoader(repository);
+        loader.pullPolicies(List.of(TestOperations.operation(List.of("wso2/addHeader:1.0.0"), List.of(), List.of())));
+
+        assertEquals(Map.of(id, 1), repository.pulls);
+        Path balaPath = loader.getBalaPath(id);
+        assertEquals(Path.of("java11"), balaPath.getFileName());
+        assertTrue(Files.isRegularFile(balaPath.resolve(TestBalas.PACKAGE_JSON)));
+    }
+
+    @Test
+    void failsForMissingPackage() throws IOException {
+        Path repositoryDir = Files.createDirectories(this.tempDir.resolve("repository"));
+        PolicyPackageLoader loader = newLoader(new FileSystemPolicyRepository(repositoryDir));
+        List<Operation> ops = List.of(TestOperations.operation(List.of("wso2/missing:1.0.0"), List.of(), List.of()));
+
+        MediationCodeGenException e = assertThrows(MediationCodeGenException.class, () -> loader.pullPolicies(ops));
+
+        assertTrue(e.getMessage().contains("wso2/missing:1.0.0 not found"), e.getMessage());
+    }
+
+    private PolicyPackageLoader newLoader(PolicyRepository repository) {
+        return new PolicyPackageLoader(this.tempDir.resolve("distribution"), this.tempDir.resolve("home"),
+                                       repository);
+    }
+
+    /**
+     * Records the pulls and the number of pulls in progress at a time. Each pull is delayed by the given time, so
+     * that the pulls overlap if they are done concurrently.
+     */
+    private static class CountingRepository implements PolicyRepository {
+
+        private final PolicyRepository repository;
+        private final long delayMillis;
+        private final Map<PackageID, Integer> pulls = new ConcurrentHashMap<>();
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger maxActive = new AtomicInteger();
+
+        CountingRepository(PolicyRepository repository, long delayMillis) {
+            this.repository = repository;
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public void pull(PackageID id, Path balaCache) throws IOException {
+            this.pulls.merge(id, 1, Integer::sum);
+            this.maxActive.accumulateAndGet(this.active.incrementAndGet(), Math::max);
+
+            try {
+                Thread.sleep(this.delayMillis);
+                this.repository.pull(id, balaCache);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } finally {
+                this.active.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim;
+
+import dev.choreo.apim.artifact.model.AttachedPolicies;
+import dev.choreo.apim.artifact.model.Operation;
+import dev.choreo.apim.artifact.model.Policy;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+final class TestOperations {
+
+    private TestOperations() {
+    }
+
+    /**
+     * Creates an operation with the given policies, each given as {@code <org>/<name>:<version>}.
+     */
+    static Operation operation(List<String> request, List<String> response, List<String> fault) {
+        AttachedPolicies policies = new AttachedPolicies();
+        policies.setRequest(policies(request));
+        policies.setResponse(policies(response));
+        policies.setFault(policies(fault));
+
+        Operation op = new Operation();
+        op.setOperationPolicies(policies);
+        return op;
+    }
+
+    private static List<Policy> policies(List<String> references) {
+        return references.stream().map(reference -> {
+            String[] split = reference.split(":");
+            Policy policy = new Policy();
+            policy.setPolicyName(split[0]);
+            policy.setPolicyVersion(split[1]);
+            return policy;
+        }).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim.artifact;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ApiArtifactTest {
+
+    private static final String API_YAML = "data:\n  endpointConfig:\n    production_endpoints:\n"
+            + "      url: http://backend:8080\n";
+    private static final String OPENAPI = "openapi: 3.0.1\npaths: {}\n";
+    private static final String LONG_NAME = "Docs/" + "a".repeat(120) + ".md";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readsZipFile() throws IOException {
+        Path zip = this.tempDir.resolve("PizzaShackAPI.zip");
+        Files.write(zip, zip(archivedEntries()));
+
+        try (ApiArtifact artifact = ApiArtifact.open(zip)) {
+            assertArtifact(artifact);
+        }
+    }
+
+    @Test
+    void readsZipBytes() throws IOException {
+        try (ApiArtifact artifact = ApiArtifact.fromZip("PizzaShackAPI.zip", zip(archivedEntries()))) {
+            assertArtifact(artifact);
+        }
+    }
+
+    @Test
+    void readsTarGzFile() throws IOException {
+        Path tarGz = this.tempDir.resolve("PizzaShackAPI.tar.gz");
+        Files.write(tarGz, tarGz(archivedEntries()));
+
+        try (ApiArtifact artifact = ApiArtifact.open(tarGz)) {
+            assertArtifact(artifact);
+        }
+    }
+
+    @Test
+    void readsDirectory() throws IOException {
+        Path dir = this.tempDir.resolve("exploded");
+        for (Map.Entry<String, String> entry : archivedEntries().entrySet()) {
+            Path file = dir.resolve(entry.getKey());
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, entry.getValue());
+        }
+        Files.createFile(dir.resolve("PizzaShackAPI").resolve("empty.txt"));
+
+        try (ApiArtifact artifact = ApiArtifact.open(dir)) {
+            assertArtifact(artifact);
+            assertEquals(0, artifact.read("empty.txt").length);
+        }
+    }
+
+    @Test
+    void keepsRootOfArtifactArchivedWithoutTopLevelDirectory() throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("api.yaml", API_YAML);
+        entries.put("Definitions/swagger.yaml", OPENAPI);
+
+        try (ApiArtifact artifact = ApiArtifact.fromZip("PizzaShackAPI.zip", zip(entries))) {
+            assertEquals(Set.of("api.yaml", "Definitions/swagger.yaml"), artifact.entries());
+        }
+    }
+
+    @Test
+    void failsForMissingEntry() throws IOException {
+        try (ApiArtifact artifact = ApiArtifact.fromZip("PizzaShackAPI.zip", zip(Map.of("api.yaml", API_YAML)))) {
+            ArtifactEntryNotFoundException e = assertThrows(ArtifactEntryNotFoundException.class,
+                                                            () -> artifact.read(ApiArtifact.OPENAPI_DEFINITION));
+            assertEquals("'Definitions/swagger.yaml' file not found in the API artifact 'PizzaShackAPI.zip'",
+                         e.getMessage());
+        }
+    }
+
+    /**
+     * An artifact as archived by API-M, i.e., in a directory named after the API, along with the metadata archivers
+     * add on macOS.
+     */
+    private static Map<String, String> archivedEntries() {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("PizzaShackAPI/api.yaml", API_YAML);
+        entries.put("PizzaShackAPI/Definitions/swagger.yaml", OPENAPI);
+        entries.put("PizzaShackAPI/" + LONG_NAME, "docs");
+        entries.put("PizzaShackAPI/.DS_Store", "metadata");
+        entries.put("__MACOSX/PizzaShackAPI/._api.yaml", "metadata");
+        return entries;
+    }
+
+    private static void assertArtifact(ApiArtifact artifact) throws IOException {
+        assertTrue(artifact.entries().containsAll(Set.of("api.yaml", "Definitions/swagger.yaml", LONG_NAME)),
+                   artifact.entries().toString());
+        assertFalse(artifact.contains(".DS_Store"));
+        assertFalse(artifact.entries().stream().anyMatch(entry -> entry.contains("__MACOSX")));
+        assertEquals(OPENAPI, new String(artifact.read(ApiArtifact.OPENAPI_DEFINITION), StandardCharsets.UTF_8));
+        assertEquals("http://backend:8080", ((Map<?, ?>) artifact.apiYaml().getData().getEndpointConfig()
+                .getProduction_endpoints()).get("url"));
+    }
+
+    private static byte[] zip(Map<String, String> entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes a ustar archive, with GNU long name entries for the names which don't fit in a header.
+     */
+    private static byte[] tarGz(Map<String, String> entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (OutputStream tar = new GZIPOutputStream(out)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+
+                if (name.length > 100) {
+                    writeTarEntry(tar, "././@LongLink".getBytes(StandardCharsets.UTF_8), 'L', name);
+                    name = Arrays.copyOf(name, 100);
+                }
+
+                writeTarEntry(tar, name, '0', entry.getValue().getBytes(StandardCharsets.UTF_8));
+            }
+
+            tar.write(new byte[1024]);
+        }
+
+        return out.toByteArray();
+    }
+
+    private static void writeTarEntry(OutputStream tar, byte[] name, char type, byte[] content) throws IOException {
+        byte[] header = new byte[512];
+        System.arraycopy(name, 0, header, 0, name.length);
+        putString(header, 100, "0000644");
+        putString(header, 108, "0000000");
+        putString(header, 116, "0000000");
+        putString(header, 124, String.format("%011o", content.length));
+        putString(header, 136, "00000000000");
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        header[156] = (byte) type;
+        putString(header, 257, "ustar");
+        putString(header, 263, "00");
+
+        int checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xFF;
+        }
+        putString(header, 148, String.format("%06o", checksum));
+        header[154] = 0;
+
+        tar.write(header);
+        tar.write(content);
+        tar.write(new byte[(512 - content.length % 512) % 512]);
+    }
+
+    private static void putString(byte[] header, int offset, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+}
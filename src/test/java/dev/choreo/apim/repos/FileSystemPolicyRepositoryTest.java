@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim.repos;
+
+import dev.choreo.apim.PackageID;
+import dev.choreo.apim.utils.MediationCodeGenException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileSystemPolicyRepositoryTest {
+
+    private static final PackageID ID = PackageID.from("wso2/addHeader", "1.0.0");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void extractsBalaToPlatformDirectory() throws IOException {
+        Path repositoryDir = this.tempDir.resolve("repository");
+        Path balaCache = this.tempDir.resolve("bala");
+        TestBalas.write(repositoryDir, ID, "java11");
+
+        new FileSystemPolicyRepository(repositoryDir).pull(ID, balaCache);
+
+        Path versionDir = balaCache.resolve("wso2").resolve("addHeader").resolve("1.0.0");
+        Path platformDir = versionDir.resolve("java11");
+        assertTrue(Files.isRegularFile(platformDir.resolve(TestBalas.PACKAGE_JSON)));
+        assertTrue(Files.isRegularFile(platformDir.resolve(TestBalas.POLICY_SOURCE)));
+
+        // The temp directory the bala is extracted to is moved into place rather than left behind
+        try (Stream<Path> children = Files.list(versionDir)) {
+            List<Path> names = children.map(Path::getFileName).collect(Collectors.toList());
+            assertEquals(List.of(Path.of("java11")), names);
+        }
+        try (Stream<Path> children = Files.list(versionDir.getParent())) {
+            List<Path> names = children.map(Path::getFileName).collect(Collectors.toList());
+            assertEquals(List.of(Path.of("1.0.0")), names);
+        }
+    }
+
+    @Test
+    void keepsExistingBalaWhenPulledAgain() throws IOException {
+        Path repositoryDir = this.tempDir.resolve("repository");
+        Path balaCache = this.tempDir.resolve("bala");
+        TestBalas.write(repositoryDir, ID, "any");
+        FileSystemPolicyRepository repository = new FileSystemPolicyRepository(repositoryDir);
+
+        repository.pull(ID, balaCache);
+        repository.pull(ID, balaCache);
+
+        Path versionDir = balaCache.resolve("wso2").resolve("addHeader").resolve("1.0.0");
+        assertTrue(Files.isRegularFile(versionDir.resolve("any").resolve(TestBalas.PACKAGE_JSON)));
+        try (Stream<Path> children = Files.list(versionDir)) {
+            assertEquals(1, children.count());
+        }
+    }
+
+    @Test
+    void failsForMissingPackage() throws IOException {
+        Path repositoryDir = Files.createDirectories(this.tempDir.resolve("repository"));
+        Path balaCache = this.tempDir.resolve("bala");
+
+        MediationCodeGenException e = assertThrows(MediationCodeGenException.class,
+                () -> new FileSystemPolicyRepository(repositoryDir).pull(ID, balaCache));
+
+        assertTrue(e.getMessage().contains("wso2/addHeader:1.0.0 not found"), e.getMessage());
+        assertFalse(Files.exists(balaCache.resolve("wso2").resolve("addHeader").resolve("1.0.0")));
+    }
+
+    @Test
+    void leavesNothingBehindForInvalidBala() throws IOException {
+        Path repositoryDir = Files.createDirectories(this.tempDir.resolve("repository"));
+        Path balaCache = this.tempDir.resolve("bala");
+        try (ZipOutputStream zip = new ZipOutputStream(
+                Files.newOutputStream(repositoryDir.resolve("wso2-addHeader-any-1.0.0.bala")))) {
+            zip.putNextEntry(new ZipEntry("../../escaped.bal"));
+            zip.closeEntry();
+        }
+
+        assertThrows(IOException.class, () -> new FileSystemPolicyRepository(repositoryDir).pull(ID, balaCache));
+
+        Path packageDir = balaCache.resolve("wso2").resolve("addHeader");
+        try (Stream<Path> children = Files.list(packageDir)) {
+            assertEquals(0, children.count());
+        }
+    }
+}
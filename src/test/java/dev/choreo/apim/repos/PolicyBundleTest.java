@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim.repos;
+
+import dev.choreo.apim.PackageID;
+import dev.choreo.apim.PolicyDescriptor;
+import dev.choreo.apim.PolicyFlow;
+import dev.choreo.apim.PolicyFunction;
+import dev.choreo.apim.utils.MediationCodeGenException;
+import io.ballerina.compiler.api.symbols.ParameterKind;
+import io.ballerina.compiler.api.symbols.TypeDescKind;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PolicyBundleTest {
+
+    private static final PackageID ADD_HEADER = PackageID.from("wso2/addHeader", "1.0.0");
+    private static final PackageID JWT = PackageID.from("wso2/jwt", "2.1.0");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void roundTripsBalasAndDescriptors() throws IOException {
+        Path bundlePath = this.tempDir.resolve("policies.bundle");
+        byte[] jwtBala = Files.readAllBytes(TestBalas.write(this.tempDir.resolve("repository"), JWT, "java11"));
+        newWriter().addBala(JWT, "java11", jwtBala, null).write(bundlePath);
+
+        try (PolicyBundle bundle = PolicyBundle.open(bundlePath)) {
+            assertEquals(Set.of(ADD_HEADER, JWT), bundle.packages());
+            assertTrue(bundle.contains(JWT));
+            assertFalse(bundle.contains(PackageID.from("wso2/jwt", "2.0.0")));
+
+            PolicyFunction inFlow = bundle.getDescriptor(ADD_HEADER).orElseThrow().getInFlowPolicy().orElseThrow();
+            assertEquals("addHeader", inFlow.name());
+            assertTrue(inFlow.isIndependent());
+            assertTrue(inFlow.isHeaderOnly());
+            PolicyFunction.Parameter param = inFlow.params().get(2);
+            assertEquals("headerName", param.name());
+            assertEquals(ParameterKind.DEFAULTABLE, param.kind());
+            assertEquals(TypeDescKind.STRING, param.typeKind());
+            assertTrue(bundle.getDescriptor(ADD_HEADER).orElseThrow().getFaultFlowPolicy().isEmpty());
+
+            // Packages bundled without a descriptor are compiled when loaded
+            assertTrue(bundle.getDescriptor(JWT).isEmpty());
+            assertEquals(ByteBuffer.wrap(jwtBala), bundle.read(JWT));
+            assertEquals(PolicyBundle.sha256(ByteBuffer.wrap(jwtBala)), bundle.getChecksum(JWT));
+        }
+    }
+
+    @Test
+    void stagesBalaFilesOnce() throws IOException {
+        Path bundlePath = this.tempDir.resolve("policies.bundle");
+        newWriter().write(bundlePath);
+        Path balaFile;
+
+        try (PolicyBundle bundle = PolicyBundle.open(bundlePath)) {
+            balaFile = bundle.balaFile(ADD_HEADER);
+
+            assertEquals("wso2-addHeader-any-1.0.0.bala", balaFile.getFileName().toString());
+            assertEquals(balaFile, bundle.balaFile(ADD_HEADER));
+            try (ZipFile zip = new ZipFile(balaFile.toFile())) {
+                assertTrue(zip.getEntry(TestBalas.PACKAGE_JSON) != null);
+                assertTrue(zip.getEntry(TestBalas.POLICY_SOURCE) != null);
+            }
+        }
+
+        assertFalse(Files.exists(balaFile));
+    }
+
+    @Test
+    void writesSameBundleForSamePolicies() throws IOException {
+        Path first = this.tempDir.resolve("first.bundle");
+        Path second = this.tempDir.resolve("second.bundle");
+        newWriter().write(first);
+        newWriter().write(second);
+
+        assertTrue(Arrays.equals(Files.readAllBytes(first), Files.readAllBytes(second)));
+    }
+
+    @Test
+    void rejectsCorruptedBala() throws IOException {
+        Path bundlePath = this.tempDir.resolve("policies.bundle");
+        newWriter().write(bundlePath);
+        byte[] content = Files.readAllBytes(bundlePath);
+        // The bala is the last thing in the bundle
+        content[content.length - 1] ^= 1;
+        Files.write(bundlePath, content);
+
+        try (PolicyBundle bundle = PolicyBundle.open(bundlePath)) {
+            MediationCodeGenException e = assertThrows(MediationCodeGenException.class,
+                                                       () -> bundle.balaFile(ADD_HEADER));
+            assertTrue(e.getMessage().startsWith("Checksum mismatch for wso2/addHeader:1.0.0"), e.getMessage());
+        }
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path notABundle = Files.writeString(this.tempDir.resolve("policies.zip"), "PK\u0003\u0004 not a bundle");
+        assertThrows(MediationCodeGenException.class, () -> PolicyBundle.open(notABundle));
+
+        Path otherVersion = this.tempDir.resolve("other.bundle");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(otherVersion))) {
+            out.write(PolicyBundle.MAGIC);
+            out.writeInt(PolicyBundle.FORMAT_VERSION + 1);
+            out.writeInt(0);
+        }
+        MediationCodeGenException e = assertThrows(MediationCodeGenException.class,
+                                                   () -> PolicyBundle.open(otherVersion));
+        assertTrue(e.getMessage().startsWith("Unsupported policy bundle format version"), e.getMessage());
+
+        Path truncated = this.tempDir.resolve("truncated.bundle");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(truncated))) {
+            out.write(PolicyBundle.MAGIC);
+            out.writeInt(PolicyBundle.FORMAT_VERSION);
+            out.writeInt(100);
+        }
+        assertThrows(MediationCodeGenException.class, () -> PolicyBundle.open(truncated));
+    }
+
+    /**
+     * A writer with the addHeader package, added from its extracted bala along with its descriptor.
+     */
+    private PolicyBundleWriter newWriter() throws IOException {
+        Path repositoryDir = this.tempDir.resolve("repository");
+        Path balaCache = this.tempDir.resolve("bala");
+        TestBalas.write(repositoryDir, ADD_HEADER, "any");
+        new FileSystemPolicyRepository(repositoryDir).pull(ADD_HEADER, balaCache);
+
+        List<PolicyFunction.Parameter> params = List.of(
+                new PolicyFunction.Parameter("req", ParameterKind.REQUIRED, TypeDescKind.TYPE_REFERENCE,
+                                             "http:Request"),
+                new PolicyFunction.Parameter("ctx", ParameterKind.REQUIRED, TypeDescKind.RECORD,
+                                             "policy_validator:Context"),
+                new PolicyFunction.Parameter("headerName", ParameterKind.DEFAULTABLE, TypeDescKind.STRING, "string"));
+        PolicyDescriptor descriptor = new PolicyDescriptor(
+                ADD_HEADER.org(), ADD_HEADER.name(), ADD_HEADER.version(),
+                Map.of(PolicyFlow.IN, new PolicyFunction("addHeader", params, true, true)));
+
+        return new PolicyBundleWriter().addBalaDirectory(
+                ADD_HEADER, balaCache.resolve("wso2").resolve("addHeader").resolve("1.0.0").resolve("any"), descriptor);
+    }
+}
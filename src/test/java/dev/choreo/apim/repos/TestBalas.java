@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dev.choreo.apim.repos;
+
+import dev.choreo.apim.PackageID;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes minimal balas to a directory laid out as a {@link FileSystemPolicyRepository}.
+ */
+public final class TestBalas {
+
+    public static final String PACKAGE_JSON = "package.json";
+    public static final String POLICY_SOURCE = "modules/policy/policy.bal";
+
+    private TestBalas() {
+    }
+
+    public static Path write(Path repository, PackageID id, String platform) throws IOException {
+        Files.createDirectories(repository);
+        Path bala = repository.resolve(String.format("%s-%s-%s-%s.bala", id.org(), id.name(), platform,
+                                                     id.version()));
+
+        try (OutputStream out = Files.newOutputStream(bala);
+             ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry(PACKAGE_JSON));
+            zip.write(String.format("{\"organization\": \"%s\", \"name\": \"%s\", \"version\": \"%s\"}",
+                                    id.org(), id.name(), id.version()).getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry(POLICY_SOURCE));
+            zip.write("public function policy() {}\n".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+
+        return bala;
+    }
+}